@@ -0,0 +1,555 @@
+import javax.swing.ImageIcon;
+import javax.swing.JComponent;
+import java.awt.Component;
+import java.awt.Container;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Micro-benchmarks for the hot paths of the feed and interval code.
+ *
+ * Each case is warmed up, then timed over several fixed-length iterations and reported as
+ * operations per second (mean ± standard deviation). Results can be saved and later
+ * compared so regressions show up as a non-zero exit code.
+ *
+ * Usage: java -Djava.awt.headless=true Benchmarks [filter] [--save file] [--compare file]
+ */
+public final class Benchmarks {
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int MEASURE_ITERATIONS = 5;
+    private static final long ITERATION_NANOS = 500_000_000L;
+    private static final double REGRESSION_THRESHOLD = 0.10;
+
+    /** Keeps results alive so the JIT cannot drop the measured work. */
+    static volatile long sink;
+
+    interface Op {
+        long run() throws Exception;
+    }
+
+    private final String filter;
+    private final Map<String, Double> results = new LinkedHashMap<>();
+
+    private Benchmarks(String filter) {
+        this.filter = filter;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String filter = "";
+        Path save = null;
+        Path compare = null;
+        for (int i = 0; i < args.length; i++) {
+            if ("--save".equals(args[i])) {
+                save = Paths.get(args[++i]);
+            } else if ("--compare".equals(args[i])) {
+                compare = Paths.get(args[++i]);
+            } else {
+                filter = args[i];
+            }
+        }
+
+        Benchmarks benchmarks = new Benchmarks(filter);
+        benchmarks.mergeIntervals();
+        benchmarks.imageCache();
+        benchmarks.postRepository();
+        benchmarks.liveInsert();
+        benchmarks.metrics();
+        benchmarks.postPanel();
+        benchmarks.feedCells();
+        benchmarks.textMeasure();
+
+        if (save != null) {
+            benchmarks.save(save);
+        }
+        if (compare != null && benchmarks.compare(compare)) {
+            System.exit(1);
+        }
+    }
+
+    // ---- Cases -------------------------------------------------------------------------
+
+    private void mergeIntervals() throws Exception {
+        for (int size : new int[]{1_000, 100_000, 1_000_000}) {
+            for (double density : new double[]{0.1, 0.9}) {
+                String params = "n=" + size + ",overlap=" + density;
+                if (!matches("merge.sorted." + params) && !matches("merge.arbitrary." + params)
+                        && !matches("merge.packed.sorted." + params) && !matches("merge.packed.arbitrary." + params)
+                        && !matches("merge.packed.parallel." + params) && !matches("merge.packed.intersect." + params)
+                        && !matches("merge.packed.subtract." + params) && !matches("merge.long.sorted." + params)
+                        && !matches("merge.long.arbitrary." + params)) {
+                    continue;
+                }
+                List<MergeIntervals.Interval> sortedA = sortedDisjoint(size, density, 1);
+                List<MergeIntervals.Interval> sortedB = sortedDisjoint(size, density, 2);
+                run("merge.sorted." + params, 1,
+                        () -> MergeIntervals.mergeTwoSortedLists(sortedA, sortedB).size());
+
+                List<MergeIntervals.Interval> shuffledA = shuffled(sortedA, 3);
+                List<MergeIntervals.Interval> shuffledB = shuffled(sortedB, 4);
+                run("merge.arbitrary." + params, 1,
+                        () -> MergeIntervals.mergeTwoArbitraryLists(shuffledA, shuffledB).size());
+
+                long[] packedA = packed(sortedA);
+                long[] packedB = packed(sortedB);
+                long[] out = new long[packedA.length + packedB.length];
+                run("merge.packed.sorted." + params, 1,
+                        () -> MergeIntervals.mergeSorted(packedA, packedA.length, packedB, packedB.length, out));
+
+                long[] shuffledPacked = new long[out.length];
+                System.arraycopy(packed(shuffledA), 0, shuffledPacked, 0, packedA.length);
+                System.arraycopy(packed(shuffledB), 0, shuffledPacked, packedA.length, packedB.length);
+                run("merge.packed.arbitrary." + params, 1, () -> {
+                    System.arraycopy(shuffledPacked, 0, out, 0, out.length);
+                    return MergeIntervals.mergeArbitraryInPlace(out, out.length);
+                });
+                run("merge.packed.parallel." + params, 1, () -> {
+                    System.arraycopy(shuffledPacked, 0, out, 0, out.length);
+                    return MergeIntervals.mergeArbitraryParallelInPlace(out, out.length, ForkJoinPool.commonPool());
+                });
+                run("merge.packed.intersect." + params, 1,
+                        () -> MergeIntervals.intersectSorted(packedA, packedA.length, packedB, packedB.length, out));
+                run("merge.packed.subtract." + params, 1,
+                        () -> MergeIntervals.subtractSorted(packedA, packedA.length, packedB, packedB.length, out));
+
+                // Same shapes as epoch-nanosecond ranges, past the int range
+                long[][] nanosA = epochNanos(sortedA);
+                long[][] nanosB = epochNanos(sortedB);
+                long[] outStarts = new long[size * 2];
+                long[] outEnds = new long[size * 2];
+                run("merge.long.sorted." + params, 1, () -> LongMergeIntervals.mergeSorted(
+                        nanosA[0], nanosA[1], size, nanosB[0], nanosB[1], size, outStarts, outEnds,
+                        LongMergeIntervals.TouchPolicy.SHARED_ENDPOINT));
+                long[][] shuffledNanosA = epochNanos(shuffledA);
+                long[][] shuffledNanosB = epochNanos(shuffledB);
+                run("merge.long.arbitrary." + params, 1, () -> {
+                    System.arraycopy(shuffledNanosA[0], 0, outStarts, 0, size);
+                    System.arraycopy(shuffledNanosB[0], 0, outStarts, size, size);
+                    System.arraycopy(shuffledNanosA[1], 0, outEnds, 0, size);
+                    System.arraycopy(shuffledNanosB[1], 0, outEnds, size, size);
+                    return LongMergeIntervals.mergeArbitraryInPlace(outStarts, outEnds, size * 2,
+                            LongMergeIntervals.TouchPolicy.SHARED_ENDPOINT);
+                });
+            }
+        }
+    }
+
+    private void imageCache() throws Exception {
+        int keys = 200;
+        ImageIcon icon = new ImageIcon(new BufferedImage(600, 375, BufferedImage.TYPE_INT_RGB));
+        for (int threads : new int[]{1, 4, 8}) {
+            String name = "imageCache.get90put10.threads=" + threads;
+            if (!matches(name)) {
+                continue;
+            }
+            // Budget fits about half the keys, so the mix includes evictions
+            ImageCache cache = ImageCache.withMaxBytes(keys / 2 * ImageCache.weigh(icon), null);
+            for (int i = 0; i < keys; i++) {
+                cache.put("https://example.com/" + i, icon);
+            }
+            String[] urls = new String[keys];
+            for (int i = 0; i < keys; i++) {
+                urls[i] = "https://example.com/" + i;
+            }
+            runContended(name, threads, seed -> {
+                Random random = new Random(seed);
+                return () -> {
+                    String url = urls[random.nextInt(keys)];
+                    if (random.nextInt(10) == 0) {
+                        cache.put(url, icon);
+                        return 1;
+                    }
+                    return cache.get(url) == null ? 0 : 1;
+                };
+            });
+        }
+    }
+
+    private void postRepository() throws Exception {
+        PostRepository generated = new GeneratedPostRepository(5000);
+        int pageSize = 15;
+        fetchPages("repository.fetchPage.size=" + pageSize, generated, 5000, pageSize);
+        String[] cursor = {null};
+        run("repository.fetchAfter.size=" + pageSize, pageSize, () -> {
+            PostRepository.Page page = generated.fetchAfter(cursor[0], pageSize);
+            cursor[0] = page.posts.size() < pageSize ? null : page.nextCursor; // wrap around at the end
+            long acc = 0;
+            for (Post post : page.posts) {
+                acc += post.getContentText().length();
+            }
+            return acc;
+        });
+
+        String mappedName = "repository.mapped.fetchPage.size=" + pageSize;
+        if (matches(mappedName)) {
+            Path file = Files.createTempFile("benchmark", ".feed");
+            try {
+                try (FeedFileWriter writer = new FeedFileWriter(file)) {
+                    writer.writeAll(generated, 1000);
+                    writer.commit();
+                }
+                try (MappedPostRepository mapped = new MappedPostRepository(file)) {
+                    fetchPages(mappedName, mapped, 5000, pageSize);
+                }
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private void fetchPages(String name, PostRepository repository, int totalPosts, int pageSize) throws Exception {
+        int pages = totalPosts / pageSize;
+        int[] page = {0};
+        run(name, pageSize, () -> {
+            page[0] = (page[0] + 1) % pages;
+            // Pages may be lazy slices, so read every post to include building the views
+            long acc = 0;
+            for (Post post : repository.fetchPage(page[0], pageSize)) {
+                acc += post.getContentText().length();
+            }
+            return acc;
+        });
+    }
+
+    private void liveInsert() throws Exception {
+        int rows = 100_000;
+        int batchSize = 33; // 1000 posts a second at one batch per frame
+        String name = "viewport.insertPosts.rows=" + rows + ",batch=" + batchSize;
+        if (!matches(name)) {
+            return;
+        }
+        ImageLoader loader = new ImageLoader(ImageCache.withMaxBytes(1 << 20, null));
+        FeedViewport viewport = new FeedViewport(loader);
+        viewport.appendPosts(new GeneratedPostRepository(rows).fetchPage(0, rows));
+        // Batches land at the top in arrival order, slightly shuffled as live posts are
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        long[] nextId = {rows + 1L};
+        Random random = new Random(5);
+        run(name, batchSize, () -> {
+            List<Post> batch = new ArrayList<>(batchSize);
+            for (int i = 0; i < batchSize; i++) {
+                long id = nextId[0]++;
+                batch.add(Post.text(id, "live", start.plusSeconds(id).minusSeconds(random.nextInt(5)), "Live post"));
+            }
+            viewport.insertPosts(batch);
+            return viewport.getPostCount();
+        });
+        loader.shutdown();
+    }
+
+    private void metrics() throws Exception {
+        for (int threads : new int[]{1, 4}) {
+            String name = "metrics.record.threads=" + threads;
+            if (!matches(name)) {
+                continue;
+            }
+            // Instrumentation sits on every stage, so recording must stay in the tens of nanoseconds
+            runContended(name, threads, seed -> () -> {
+                FeedMetrics.record(FeedMetrics.Stage.DECODE, System.nanoTime() - 1_000_000);
+                return 1;
+            });
+        }
+        FeedMetrics.histogram(FeedMetrics.Stage.DECODE).reset();
+    }
+
+    private void postPanel() throws Exception {
+        PostRepository repository = new GeneratedPostRepository(600);
+        ImageCache cache = ImageCache.withMaxBytes(Long.MAX_VALUE, null);
+        ImageIcon icon = new ImageIcon(new BufferedImage(600, 375, BufferedImage.TYPE_INT_RGB));
+        Map<PostType, List<Post>> byType = new LinkedHashMap<>();
+        for (Post post : repository.fetchPage(0, 600)) {
+            byType.computeIfAbsent(post.getType(), t -> new ArrayList<>()).add(post);
+            if (post.getType() == PostType.PHOTO) {
+                cache.put(post.getMediaUrl(), icon); // keep the benchmark off the network
+            }
+        }
+        ImageLoader loader = new ImageLoader(cache);
+        for (Map.Entry<PostType, List<Post>> entry : byType.entrySet()) {
+            List<Post> posts = entry.getValue();
+            int[] next = {0};
+            run("postPanel.construct." + entry.getKey(), 1, () -> {
+                Post post = posts.get(next[0]++ % posts.size());
+                PostPanel panel = new PostPanel(post, loader);
+                panel.setSize(600, 1000);
+                panel.doLayout();
+                return panel.getPreferredSize().height;
+            });
+
+            // A pooled panel re-bound to the next post, as the viewport does while scrolling
+            PostPanel pooled = new PostPanel(entry.getKey(), loader);
+            run("postPanel.bind." + entry.getKey(), 1, () -> {
+                pooled.bind(posts.get(next[0]++ % posts.size()));
+                return pooled.getComponentCount();
+            });
+
+            PostPanel painted = new PostPanel(posts.get(0), loader);
+            painted.setSize(624, 420);
+            layoutTree(painted);
+            BufferedImage canvas = new BufferedImage(624, 420, BufferedImage.TYPE_INT_RGB);
+            run("postPanel.paint." + entry.getKey(), 1, () -> {
+                Graphics2D g = canvas.createGraphics();
+                painted.paint(g);
+                g.dispose();
+                return canvas.getRGB(300, 200);
+            });
+        }
+        loader.shutdown();
+    }
+
+    private void feedCells() throws Exception {
+        PostRepository repository = new GeneratedPostRepository(600);
+        ImageCache cache = ImageCache.withMaxBytes(Long.MAX_VALUE, null);
+        ImageIcon icon = new ImageIcon(new BufferedImage(600, 375, BufferedImage.TYPE_INT_RGB));
+        Map<PostType, List<Post>> byType = new LinkedHashMap<>();
+        for (Post post : repository.fetchPage(0, 600)) {
+            byType.computeIfAbsent(post.getType(), t -> new ArrayList<>()).add(post);
+            if (post.getType() == PostType.PHOTO) {
+                cache.put(post.getMediaUrl(), icon);
+            }
+        }
+        ImageLoader loader = new ImageLoader(cache);
+        BufferedImage canvas = new BufferedImage(624, 420, BufferedImage.TYPE_INT_RGB);
+        for (FeedViewport.RenderMode mode : FeedViewport.RenderMode.values()) {
+            String prefix = "feedCell." + mode.name().toLowerCase(Locale.ROOT);
+            for (Map.Entry<PostType, List<Post>> entry : byType.entrySet()) {
+                List<Post> posts = entry.getValue();
+                int[] next = {0};
+                // What the viewport does per row scrolling into view: re-bind a pooled cell, measure, place
+                FeedCell cell = mode.createCell(entry.getKey(), loader);
+                run(prefix + ".bindMeasure." + entry.getKey(), 1, () -> {
+                    cell.bind(posts.get(next[0]++ % posts.size()));
+                    int height = cell.measureHeight(600);
+                    cell.getComponent().setBounds(12, 12, 600, height);
+                    layoutTree(cell.getComponent()); // validate() lays out nothing without a peer
+                    return height;
+                });
+
+                JComponent painted = cell.getComponent();
+                painted.setSize(624, 420);
+                layoutTree(painted);
+                run(prefix + ".paint." + entry.getKey(), 1, () -> {
+                    Graphics2D g = canvas.createGraphics();
+                    painted.paint(g);
+                    g.dispose();
+                    return canvas.getRGB(300, 200);
+                });
+            }
+        }
+        loader.shutdown();
+    }
+
+    private void textMeasure() throws Exception {
+        List<Post> posts = new GeneratedPostRepository(10_000).fetchPage(0, 10_000);
+        StringBuilder paragraph = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            paragraph.append("The quick brown fox jumps over the lazy dog. ");
+        }
+        String longText = paragraph.toString();
+        FontMetrics metrics = RenderResources.fontMetrics(RenderResources.BODY_FONT);
+        TextMeasureCache cache = new TextMeasureCache(16);
+        run("textMeasure.height.miss.chars=" + longText.length(), 1, () -> cache.height(longText, metrics, 574));
+        cache.lines(longText, metrics, 574);
+        run("textMeasure.height.hit.chars=" + longText.length(), 1, () -> cache.height(longText, metrics, 574));
+
+        // Rows get their heights as pages arrive, before any cell exists
+        ImageLoader loader = new ImageLoader(ImageCache.withMaxBytes(1 << 20, null));
+        int[] next = {0};
+        FeedViewport[] viewport = {new FeedViewport(loader)};
+        run("viewport.appendPosts.page=15", 15, () -> {
+            if (next[0] + 15 > posts.size()) {
+                viewport[0] = new FeedViewport(loader);
+                next[0] = 0;
+            }
+            viewport[0].appendPosts(posts.subList(next[0], next[0] += 15));
+            return viewport[0].getPostCount();
+        });
+        loader.shutdown();
+    }
+
+    private static void layoutTree(Container container) {
+        container.doLayout();
+        for (Component child : container.getComponents()) {
+            if (child instanceof Container) {
+                layoutTree((Container) child);
+            }
+        }
+    }
+
+    // ---- Harness -----------------------------------------------------------------------
+
+    private boolean matches(String name) {
+        return name.contains(filter) || filter.isEmpty();
+    }
+
+    private void run(String name, int opsPerCall, Op op) throws Exception {
+        if (!matches(name)) {
+            return;
+        }
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            measureIteration(op, opsPerCall);
+        }
+        double[] scores = new double[MEASURE_ITERATIONS];
+        for (int i = 0; i < MEASURE_ITERATIONS; i++) {
+            scores[i] = measureIteration(op, opsPerCall);
+        }
+        report(name, scores);
+    }
+
+    private static double measureIteration(Op op, int opsPerCall) throws Exception {
+        long calls = 0;
+        long acc = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            acc += op.run();
+            calls++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < ITERATION_NANOS);
+        sink += acc;
+        return calls * (double) opsPerCall / (elapsed / 1e9);
+    }
+
+    interface OpFactory {
+        Op create(long seed);
+    }
+
+    /** Runs one op instance per thread, all starting together; reports total throughput. */
+    private void runContended(String name, int threads, OpFactory factory) throws Exception {
+        double[] scores = new double[MEASURE_ITERATIONS];
+        for (int iteration = -WARMUP_ITERATIONS; iteration < MEASURE_ITERATIONS; iteration++) {
+            LongAdder total = new LongAdder();
+            CyclicBarrier barrier = new CyclicBarrier(threads + 1);
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Op op = factory.create(t * 31L + iteration);
+                Thread worker = new Thread(() -> {
+                    try {
+                        barrier.await();
+                        long calls = 0;
+                        long acc = 0;
+                        long start = System.nanoTime();
+                        while (System.nanoTime() - start < ITERATION_NANOS) {
+                            acc += op.run();
+                            calls++;
+                        }
+                        sink += acc;
+                        total.add(calls);
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+                worker.start();
+                workers.add(worker);
+            }
+            barrier.await();
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            if (iteration >= 0) {
+                scores[iteration] = total.sum() / (ITERATION_NANOS / 1e9);
+            }
+        }
+        report(name, scores);
+    }
+
+    private void report(String name, double[] scores) {
+        double mean = 0;
+        for (double score : scores) {
+            mean += score;
+        }
+        mean /= scores.length;
+        double variance = 0;
+        for (double score : scores) {
+            variance += (score - mean) * (score - mean);
+        }
+        double stddev = Math.sqrt(variance / Math.max(1, scores.length - 1));
+        results.put(name, mean);
+        System.out.printf("%-48s %14.1f ops/s  +/- %.1f%n", name, mean, stddev);
+    }
+
+    private void save(Path file) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, Double> result : results.entrySet()) {
+            lines.add(result.getKey() + "=" + result.getValue());
+        }
+        Files.write(file, lines);
+    }
+
+    /** Prints the change against a saved run; returns true if any case slowed down past the threshold. */
+    private boolean compare(Path file) throws IOException {
+        boolean regressed = false;
+        for (String line : Files.readAllLines(file)) {
+            int eq = line.lastIndexOf('=');
+            if (eq <= 0) {
+                continue;
+            }
+            String name = line.substring(0, eq);
+            Double current = results.get(name);
+            if (current == null) {
+                continue;
+            }
+            double baseline = Double.parseDouble(line.substring(eq + 1));
+            double change = (current - baseline) / baseline;
+            boolean slower = change < -REGRESSION_THRESHOLD;
+            regressed |= slower;
+            System.out.printf("%-48s %+7.1f%%%s%n", name, change * 100, slower ? "  REGRESSION" : "");
+        }
+        return regressed;
+    }
+
+    // ---- Inputs ------------------------------------------------------------------------
+
+    /** Sorted, disjoint intervals; {@code overlap} is the chance of overlapping the other list's neighbour. */
+    private static List<MergeIntervals.Interval> sortedDisjoint(int size, double overlap, long seed) {
+        Random random = new Random(seed);
+        List<MergeIntervals.Interval> out = new ArrayList<>(size);
+        int position = 0;
+        for (int i = 0; i < size; i++) {
+            int length = 1 + random.nextInt(8);
+            int gap = random.nextDouble() < overlap ? 1 + random.nextInt(4) : 10 + random.nextInt(40);
+            out.add(new MergeIntervals.Interval(position, position + length));
+            position += length + gap;
+        }
+        return out;
+    }
+
+    private static long[] packed(List<MergeIntervals.Interval> intervals) {
+        long[] out = new long[intervals.size()];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = MergeIntervals.pack(intervals.get(i).start, intervals.get(i).end);
+        }
+        return out;
+    }
+
+    /** Starts and ends as nanoseconds after a 2023 epoch instant, one unit being a microsecond. */
+    private static long[][] epochNanos(List<MergeIntervals.Interval> intervals) {
+        long base = 1_700_000_000_000_000_000L;
+        long[][] out = new long[2][intervals.size()];
+        for (int i = 0; i < intervals.size(); i++) {
+            out[0][i] = base + intervals.get(i).start * 1_000L;
+            out[1][i] = base + intervals.get(i).end * 1_000L;
+        }
+        return out;
+    }
+
+    private static List<MergeIntervals.Interval> shuffled(List<MergeIntervals.Interval> in, long seed) {
+        List<MergeIntervals.Interval> out = new ArrayList<>(in);
+        Collections.shuffle(out, new Random(seed));
+        return out;
+    }
+}
@@ -0,0 +1,229 @@
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persistent second tier behind {@link ImageCache}: already-downscaled thumbnails stored
+ * as JPEG files named by the SHA-256 of their URL.
+ *
+ * Files are written to a temporary name and atomically renamed, so a crash never leaves
+ * a half-written entry. The LRU index lives in memory and is rebuilt at startup from a
+ * single directory scan, ordered by last-modified time (which is bumped on every hit).
+ * The total size of the files is kept under the byte budget by evicting the least
+ * recently used entries.
+ */
+class DiskImageCache {
+    private static final String SUFFIX = ".jpg";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final AtomicLong TEMP_COUNTER = new AtomicLong();
+
+    private final Path directory;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Long> entrySizes = new LinkedHashMap<>(256, 0.75f, true);
+    private long currentBytes = 0;
+
+    DiskImageCache(Path directory, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.maxBytes = Math.max(1, maxBytes);
+        Files.createDirectories(directory);
+        rebuildIndex();
+    }
+
+    /** Returns the stored thumbnail for the URL, or null. Blocking; call off the EDT. */
+    BufferedImage read(String url) {
+        String key = keyFor(url);
+        synchronized (this) {
+            if (entrySizes.get(key) == null) {
+                return null;
+            }
+        }
+        Path file = fileFor(key);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            BufferedImage image = ImageIO.read(new ByteBufferInputStream(mapped));
+            if (image == null) {
+                remove(key);
+                return null;
+            }
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return image;
+        } catch (IOException e) {
+            remove(key);
+            return null;
+        }
+    }
+
+    /** Stores a thumbnail for the URL, replacing any previous entry. Blocking; call off the EDT. */
+    void write(String url, BufferedImage thumbnail) {
+        String key = keyFor(url);
+        Path target = fileFor(key);
+        Path temp = directory.resolve(key + "." + TEMP_COUNTER.incrementAndGet() + TEMP_SUFFIX);
+        try {
+            byte[] encoded = encode(thumbnail);
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(encoded);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            synchronized (this) {
+                Long previous = entrySizes.put(key, (long) encoded.length);
+                currentBytes += encoded.length - (previous == null ? 0 : previous);
+                evictIfNeeded();
+            }
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // Leftover temp files are removed on the next startup
+            }
+        }
+    }
+
+    synchronized long getCurrentBytes() {
+        return currentBytes;
+    }
+
+    synchronized int size() {
+        return entrySizes.size();
+    }
+
+    static String keyFor(String url) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(url.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private Path fileFor(String key) {
+        return directory.resolve(key + SUFFIX);
+    }
+
+    private void rebuildIndex() throws IOException {
+        List<Path> files = new ArrayList<>();
+        Map<Path, BasicFileAttributes> attributes = new LinkedHashMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(TEMP_SUFFIX)) {
+                    Files.deleteIfExists(file); // interrupted write
+                } else if (name.endsWith(SUFFIX)) {
+                    files.add(file);
+                    attributes.put(file, Files.readAttributes(file, BasicFileAttributes.class));
+                }
+            }
+        }
+        files.sort(Comparator.comparing(file -> attributes.get(file).lastModifiedTime()));
+        synchronized (this) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                long size = attributes.get(file).size();
+                entrySizes.put(name.substring(0, name.length() - SUFFIX.length()), size);
+                currentBytes += size;
+            }
+            evictIfNeeded();
+        }
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<String, Long>> eldest = entrySizes.entrySet().iterator();
+        while (currentBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            eldest.remove();
+            currentBytes -= entry.getValue();
+            try {
+                Files.deleteIfExists(fileFor(entry.getKey()));
+            } catch (IOException ignored) {
+                // Orphaned files are not indexed; they are picked up again on the next startup
+            }
+        }
+    }
+
+    private synchronized void remove(String key) {
+        Long size = entrySizes.remove(key);
+        if (size != null) {
+            currentBytes -= size;
+        }
+        try {
+            Files.deleteIfExists(fileFor(key));
+        } catch (IOException ignored) {
+            // Best effort
+        }
+    }
+
+    private static byte[] encode(BufferedImage image) throws IOException {
+        BufferedImage rgb = image;
+        if (image.getType() != BufferedImage.TYPE_INT_RGB) {
+            // The JPEG writer rejects alpha channels
+            rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = rgb.createGraphics();
+            g.drawImage(image, 0, 0, null);
+            g.dispose();
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+        if (!ImageIO.write(rgb, "jpg", out)) {
+            throw new IOException("No JPEG writer available");
+        }
+        return out.toByteArray();
+    }
+
+    /** Reads a (memory-mapped) buffer without copying it into a byte array first. */
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -1,15 +1,33 @@
 import javax.swing.SwingUtilities;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
 public class FeedApp {
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        // Serve a feed file written by FeedFileWriter if one is given, else a generated feed
+        PostRepository repository = args.length > 0
+                ? new MappedPostRepository(Paths.get(args[0]))
+                : new GeneratedPostRepository(5000);
+        // Simulated live posts on top of the stored feed; -Dfeed.livePostsPerSecond=0 turns them off
+        int livePostsPerSecond = Integer.getInteger("feed.livePostsPerSecond", 1);
+        // -Dfeed.renderer=painted draws each post with one component instead of a component tree
+        FeedViewport.RenderMode renderMode = FeedViewport.RenderMode.valueOf(
+                System.getProperty("feed.renderer", "components").toUpperCase(Locale.ROOT));
+        List<Post> newest = repository.fetchAfter(null, 1).posts;
+        long nextId = newest.isEmpty() ? 1 : newest.get(0).getId() + 1;
+        // Latencies, queue depths and EDT stalls, through JMX and JFR
+        FeedMetrics.registerMBean();
+        FeedMetrics.installEdtWatchdog();
         SwingUtilities.invokeLater(() -> {
-            // Switch to repository-backed infinite scroll for large datasets
-            PostRepository repository = new PostRepository(5000);
-            FeedFrame frame = new FeedFrame(repository);
+            FeedFrame frame = new FeedFrame(repository, renderMode);
+            if (livePostsPerSecond > 0) {
+                frame.follow(new LivePostSource(nextId, livePostsPerSecond));
+            }
             frame.setVisible(true);
         });
     }
@@ -0,0 +1,27 @@
+import javax.swing.JComponent;
+
+/**
+ * A card the {@link FeedViewport} can pool and recycle. A cell is built once for a
+ * {@link PostType} and then bound to one post of that type at a time.
+ */
+interface FeedCell {
+
+    PostType getPostType();
+
+    Post getPost();
+
+    /** Shows the given post in this cell. The post must have this cell's type. */
+    void bind(Post post);
+
+    /** Releases the bound post and withdraws its pending image request. */
+    void unbind();
+
+    /** Distance in pixels from the visible area; nearer images are loaded first. */
+    void setImagePriority(int distance);
+
+    /** Height of the bound post laid out at the given width. */
+    int measureHeight(int width);
+
+    /** The component the viewport positions; added to and removed from the view as rows scroll. */
+    JComponent getComponent();
+}
@@ -0,0 +1,111 @@
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+/**
+ * Keyset position in a feed ordered newest first by (createdAt, id), carried between
+ * requests as an opaque token.
+ *
+ * A cursor names the last post a reader has seen, so the next page starts right after
+ * that post however many posts were added in front of it. The token also carries the
+ * row the post was at when the cursor was made. While that row still holds the same key,
+ * seeking is O(1); otherwise it falls back to a binary search over the keys.
+ *
+ * Repositories keep createdAt at millisecond resolution, as {@link #toMillis} does.
+ */
+final class FeedCursor {
+    private static final byte VERSION = 1;
+    private static final int TOKEN_BYTES = 1 + 8 + 8 + 4;
+
+    /** Sorted keys of a repository, row 0 being the newest post. */
+    interface Keys {
+        int size();
+
+        long millisAt(int row);
+
+        long idAt(int row);
+    }
+
+    private final long createdAtMillis;
+    private final long id;
+    private final int rowHint;
+
+    private FeedCursor(long createdAtMillis, long id, int rowHint) {
+        this.createdAtMillis = createdAtMillis;
+        this.id = id;
+        this.rowHint = rowHint;
+    }
+
+    /** Cursor just after the post with the given key, which is at {@code row}; -1 if the row is not known. */
+    static FeedCursor at(long createdAtMillis, long id, int row) {
+        return new FeedCursor(createdAtMillis, id, row);
+    }
+
+    String encode() {
+        ByteBuffer bytes = ByteBuffer.allocate(TOKEN_BYTES);
+        bytes.put(VERSION).putLong(createdAtMillis).putLong(id).putInt(rowHint);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.array());
+    }
+
+    /** @throws IllegalArgumentException if the token was not made by {@link #encode()} */
+    static FeedCursor decode(String token) {
+        byte[] raw;
+        try {
+            raw = Base64.getUrlDecoder().decode(token);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed feed cursor: " + token, e);
+        }
+        if (raw.length != TOKEN_BYTES || raw[0] != VERSION) {
+            throw new IllegalArgumentException("Malformed feed cursor: " + token);
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(raw, 1, TOKEN_BYTES - 1);
+        return new FeedCursor(bytes.getLong(), bytes.getLong(), bytes.getInt());
+    }
+
+    /** First row that comes after this cursor in feed order; {@code keys.size()} if none. */
+    int firstRowAfter(Keys keys) {
+        int size = keys.size();
+        if (rowHint >= 0 && rowHint < size && keys.millisAt(rowHint) == createdAtMillis && keys.idAt(rowHint) == id) {
+            return rowHint + 1;
+        }
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            long millis = keys.millisAt(mid);
+            boolean beforeOrAt = millis > createdAtMillis || (millis == createdAtMillis && keys.idAt(mid) >= id);
+            if (beforeOrAt) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /** First row created strictly before {@code millis}; {@code keys.size()} if none. */
+    static int firstRowOlderThan(long millis, Keys keys) {
+        int low = 0;
+        int high = keys.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys.millisAt(mid) >= millis) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /** The local date-time read as UTC, in epoch milliseconds. */
+    static long toMillis(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) * 1000L + dateTime.getNano() / 1_000_000;
+    }
+
+    static LocalDateTime toDateTime(long millis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000L),
+                (int) Math.floorMod(millis, 1000L) * 1_000_000, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,188 @@
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes feed files for {@link MappedPostRepository}, one post at a time in feed order:
+ * newest first by (createdAt, id), which the reader's cursor and time searches rely on.
+ *
+ * Records stream to a temporary file next to the target; {@link #commit()} appends the
+ * offset and time indexes, fills in the header and atomically renames the file into
+ * place, so a reader never sees a half-written feed. The indexes are held in memory until
+ * then, 16 bytes per post. Closing a writer that was not committed, as when a write threw
+ * inside try-with-resources, deletes the temporary file and leaves the target untouched.
+ *
+ * Usage as a converter: java FeedFileWriter out.feed [postCount] writes a generated feed.
+ */
+class FeedFileWriter implements Closeable {
+    private final Path target;
+    private final Path temp;
+    private final DataOutputStream out;
+    private long position = MappedPostRepository.HEADER_BYTES;
+    private long[] offsets = new long[1024];
+    private long[] times = new long[1024];
+    private long lastId;
+    private int count = 0;
+    private boolean failed = false; // A record may be partly written
+    private boolean closed = false;
+
+    FeedFileWriter(Path target) throws IOException {
+        this.target = target;
+        this.temp = target.resolveSibling(target.getFileName() + ".tmp");
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16));
+        out.write(new byte[MappedPostRepository.HEADER_BYTES]); // Filled in on close
+    }
+
+    void write(Post post) throws IOException {
+        byte[] author = post.getAuthor().getBytes(StandardCharsets.UTF_8);
+        byte[] mediaUrl = post.getMediaUrl() == null ? null : post.getMediaUrl().getBytes(StandardCharsets.UTF_8);
+        byte[] text = post.getContentText() == null ? null : post.getContentText().getBytes(StandardCharsets.UTF_8);
+        long length = MappedPostRepository.RECORD_FIXED_BYTES + author.length
+                + (mediaUrl == null ? 0 : mediaUrl.length) + (text == null ? 0 : text.length);
+        if (author.length > 0xFFFF || length > MappedPostRepository.MAX_RECORD_BYTES) {
+            throw new IOException("Post too large for a feed file record: " + length + " bytes");
+        }
+        if (count == Integer.MAX_VALUE) {
+            throw new IOException("Feed file is full");
+        }
+
+        long millis = FeedCursor.toMillis(post.getCreatedAt());
+        if (count > 0 && (millis > times[count - 1] || (millis == times[count - 1] && post.getId() >= lastId))) {
+            throw new IOException("Posts must be written newest first by (createdAt, id); post " + post.getId()
+                    + " at " + post.getCreatedAt() + " follows post " + lastId);
+        }
+
+        if (count == offsets.length) {
+            int capacity = (int) Math.min(Integer.MAX_VALUE, offsets.length * 2L);
+            offsets = Arrays.copyOf(offsets, capacity);
+            times = Arrays.copyOf(times, capacity);
+        }
+        offsets[count] = position;
+        times[count++] = millis;
+        lastId = post.getId();
+
+        failed = true;
+        out.writeLong(millis);
+        out.writeLong(post.getId());
+        out.writeByte(post.getType().ordinal());
+        out.writeShort(author.length);
+        out.writeInt(mediaUrl == null ? -1 : mediaUrl.length);
+        out.writeInt(text == null ? -1 : text.length);
+        out.write(author);
+        if (mediaUrl != null) {
+            out.write(mediaUrl);
+        }
+        if (text != null) {
+            out.write(text);
+        }
+        failed = false;
+        position += length;
+    }
+
+    /** Copies every page of a repository, in order, until it returns an empty page. */
+    void writeAll(PostRepository source, int pageSize) throws IOException {
+        List<Post> page;
+        for (int pageIndex = 0; !(page = source.fetchPage(pageIndex, pageSize)).isEmpty(); pageIndex++) {
+            for (Post post : page) {
+                write(post);
+            }
+        }
+    }
+
+    /**
+     * Finishes the feed and renames it over the target. Call once after the last write;
+     * if anything fails here the target is left as it was.
+     *
+     * @throws IOException if a write failed part way or the file cannot be finished
+     */
+    void commit() throws IOException {
+        if (closed) {
+            throw new IOException("Feed file writer is closed");
+        }
+        if (failed) {
+            close();
+            throw new IOException("A write failed; not replacing " + target);
+        }
+        closed = true;
+        try {
+            finish();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    /** Discards the feed unless {@link #commit()} succeeded: the temporary file is deleted. */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            out.close();
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void finish() throws IOException {
+        long indexOffset = position;
+        long timeIndexOffset = indexOffset + count * 8L;
+        try {
+            for (int i = 0; i < count; i++) {
+                out.writeLong(offsets[i]);
+            }
+            for (int i = 0; i < count; i++) {
+                out.writeLong(times[i]);
+            }
+        } finally {
+            out.close();
+        }
+        try (RandomAccessFile file = new RandomAccessFile(temp.toFile(), "rw")) {
+            file.writeInt(MappedPostRepository.MAGIC);
+            file.writeInt(MappedPostRepository.VERSION);
+            file.writeInt(count);
+            file.writeInt(0);
+            file.writeLong(indexOffset);
+            file.writeLong(timeIndexOffset);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: java FeedFileWriter <out.feed> [postCount]");
+            System.exit(2);
+        }
+        Path file = Paths.get(args[0]);
+        int postCount = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+
+        long start = System.nanoTime();
+        try (FeedFileWriter writer = new FeedFileWriter(file)) {
+            writer.writeAll(new GeneratedPostRepository(postCount), 1000);
+            writer.commit();
+        }
+        System.out.printf("Wrote %d posts, %.1f MB, in %d ms%n",
+                postCount, Files.size(file) / 1e6, (System.nanoTime() - start) / 1_000_000);
+
+        start = System.nanoTime();
+        try (MappedPostRepository repository = new MappedPostRepository(file)) {
+            long opened = System.nanoTime() - start;
+            List<Post> last = repository.fetchPage((repository.getPostCount() - 1) / 15, 15);
+            System.out.printf("Opened in %.2f ms; last page has %d posts, ending with %s by %s%n",
+                    opened / 1e6, last.size(),
+                    last.isEmpty() ? "-" : last.get(last.size() - 1).getType(),
+                    last.isEmpty() ? "-" : last.get(last.size() - 1).getAuthor());
+        }
+    }
+}
@@ -1,24 +1,29 @@
 import javax.swing.*;
-import javax.swing.border.EmptyBorder;
-import java.awt.*;
 import java.awt.event.AdjustmentEvent;
 import java.awt.event.AdjustmentListener;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
 
 class FeedFrame extends JFrame {
-    private final JPanel feedPanel;
-    private final ImageCache imageCache = new ImageCache(96);
-    private final ExecutorService executor = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors() / 2));
+    private static final long MEMORY_CACHE_BYTES = 64L * 1024 * 1024;
+    private static final long DISK_CACHE_BYTES = 64L * 1024 * 1024;
+    private static final int MAX_RETAINED_POSTS = 1000;
+
+    private final FeedViewport feedViewport;
+    private final ImageCache imageCache = ImageCache.withMaxBytes(MEMORY_CACHE_BYTES, openDiskCache());
+    private final ImageLoader imageLoader = new ImageLoader(imageCache);
     private final PostRepository repository;
     private final int pageSize = 15;
-    private int nextPageIndex = 0;
-    private boolean isLoading = false;
-    private boolean noMorePages = false;
-    private int retainedPostLimit = 150; // cap components kept in memory
+    private final PageLoader pageLoader;
+    private LiveFeedIngestor liveIngestor;
+    private int lastScrollValue = 0;
+    private long lastScrollNanos = 0;
+    private double scrollVelocity = 0; // pixels per second, smoothed
 
     FeedFrame(List<Post> posts) {
         super("Feed");
@@ -26,21 +31,20 @@ class FeedFrame extends JFrame {
         setSize(700, 900);
         setLocationRelativeTo(null);
 
-        feedPanel = new JPanel();
-        feedPanel.setLayout(new BoxLayout(feedPanel, BoxLayout.Y_AXIS));
-        feedPanel.setBorder(new EmptyBorder(12, 12, 12, 12));
-        feedPanel.setBackground(new Color(250, 250, 250));
+        feedViewport = new FeedViewport(imageLoader);
 
-        JScrollPane scrollPane = new JScrollPane(feedPanel);
+        JScrollPane scrollPane = new JScrollPane(feedViewport);
         scrollPane.getVerticalScrollBar().setUnitIncrement(16);
         setContentPane(scrollPane);
 
         setPosts(posts);
+        registerGauges();
 
         this.repository = null; // legacy path
+        this.pageLoader = null;
     }
 
-    FeedFrame(PostRepository repository) {
+    FeedFrame(PostRepository repository, FeedViewport.RenderMode renderMode) {
         super("Feed");
         setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
         setSize(700, 900);
@@ -48,22 +52,26 @@ class FeedFrame extends JFrame {
 
         this.repository = repository;
 
-        feedPanel = new JPanel();
-        feedPanel.setLayout(new BoxLayout(feedPanel, BoxLayout.Y_AXIS));
-        feedPanel.setBorder(new EmptyBorder(12, 12, 12, 12));
-        feedPanel.setBackground(new Color(250, 250, 250));
+        feedViewport = new FeedViewport(imageLoader, renderMode);
+        // Pages are fetched in the background; only the append runs on the EDT
+        pageLoader = new PageLoader(repository, pageSize, feedViewport::appendPosts);
+        // Posts scrolled far away are dropped and fetched again, so memory stays flat however far one reads
+        feedViewport.setRetention(MAX_RETAINED_POSTS, pageLoader::fetchAfterAsync);
 
-        JScrollPane scrollPane = new JScrollPane(feedPanel);
+        JScrollPane scrollPane = new JScrollPane(feedViewport);
         scrollPane.getVerticalScrollBar().setUnitIncrement(16);
         setContentPane(scrollPane);
 
+        registerGauges();
+
         // Initial page
-        loadNextPage();
+        pageLoader.requestAhead(1);
 
         // Infinite scroll trigger
         scrollPane.getVerticalScrollBar().addAdjustmentListener(new AdjustmentListener() {
             @Override
             public void adjustmentValueChanged(AdjustmentEvent e) {
+                updateScrollVelocity(e.getValue());
                 if (shouldLoadMore(scrollPane)) {
                     loadNextPage();
                 }
@@ -71,20 +79,69 @@ class FeedFrame extends JFrame {
         });
     }
 
+    /** Stops the page loader and the live source along with the window. */
+    @Override
+    public void dispose() {
+        if (pageLoader != null) {
+            pageLoader.close();
+        }
+        if (liveIngestor != null) {
+            liveIngestor.close();
+            liveIngestor = null;
+        }
+        super.dispose();
+    }
+
+    private void registerGauges() {
+        FeedMetrics.registerGauge("image_cache.hits", () -> imageCache.stats().hits);
+        FeedMetrics.registerGauge("image_cache.misses", () -> imageCache.stats().misses);
+        FeedMetrics.registerGauge("image_cache.hit_rate_percent", () -> Math.round(imageCache.stats().hitRate() * 100));
+        FeedMetrics.registerGauge("image_cache.bytes", () -> imageCache.stats().currentWeight);
+        FeedMetrics.registerGauge("image_loader.in_flight", imageLoader::getInFlightCount);
+        FeedMetrics.registerGauge("image_loader.fetch_queue", imageLoader::getQueuedCount);
+        FeedMetrics.registerGauge("image_loader.decode_queue", imageLoader::getDecodeQueuedCount);
+        FeedMetrics.registerGauge("image_loader.dropped", imageLoader::getDroppedCount);
+        FeedMetrics.registerGauge("text_measures.entries", RenderResources.TEXT_MEASURES::size);
+        FeedMetrics.registerGauge("text_measures.hits", RenderResources.TEXT_MEASURES::getHitCount);
+        FeedMetrics.registerGauge("text_measures.misses", RenderResources.TEXT_MEASURES::getMissCount);
+        if (pageLoader != null) {
+            FeedMetrics.registerGauge("page_loader.failures", pageLoader::getFailureCount);
+        }
+        FeedMetrics.registerGauge("feed.posts", feedViewport::getPostCount);
+        FeedMetrics.registerGauge("feed.retained_posts", feedViewport::getRetainedPostCount);
+        FeedMetrics.registerGauge("feed.live_cells", feedViewport::getLiveCellCount);
+    }
+
+    private static DiskImageCache openDiskCache() {
+        Path directory = Paths.get(System.getProperty("user.home"), ".feedapp", "thumbnails");
+        try {
+            return new DiskImageCache(directory, DISK_CACHE_BYTES);
+        } catch (IOException e) {
+            // Run with the in-memory cache only
+            return null;
+        }
+    }
+
     void setPosts(List<Post> posts) {
-        feedPanel.removeAll();
         List<Post> copy = new ArrayList<>(posts);
-        Collections.sort(copy, (a, b) -> b.getCreatedAt().compareTo(a.getCreatedAt()));
-        for (Post post : copy) {
-            feedPanel.add(new PostPanel(post, imageCache, executor));
-            feedPanel.add(Box.createRigidArea(new Dimension(0, 12)));
+        Collections.sort(copy, PostStore.FEED_ORDER);
+        feedViewport.setPosts(copy);
+    }
+
+    /**
+     * Shows new posts from a live source as they arrive, merged into the feed in batches
+     * of at most one per frame. Replaces any source followed before.
+     */
+    void follow(Flow.Publisher<Post> source) {
+        if (liveIngestor != null) {
+            liveIngestor.close();
         }
-        feedPanel.revalidate();
-        feedPanel.repaint();
+        liveIngestor = new LiveFeedIngestor(feedViewport::insertPosts);
+        source.subscribe(liveIngestor);
     }
 
     private boolean shouldLoadMore(JScrollPane scrollPane) {
-        if (isLoading || noMorePages || repository == null) {
+        if (pageLoader == null || !pageLoader.hasMorePages()) {
             return false;
         }
         JScrollBar bar = scrollPane.getVerticalScrollBar();
@@ -94,43 +151,20 @@ class FeedFrame extends JFrame {
         return pos >= (int) (max * 0.85);
     }
 
-    private void loadNextPage() {
-        if (repository == null || isLoading || noMorePages) {
-            return;
-        }
-        isLoading = true;
-        List<Post> page = repository.fetchPage(nextPageIndex, pageSize);
-        if (page.isEmpty()) {
-            noMorePages = true;
-            isLoading = false;
-            return;
+    private void updateScrollVelocity(int value) {
+        long now = System.nanoTime();
+        if (lastScrollNanos != 0) {
+            double seconds = Math.max(1e-3, (now - lastScrollNanos) / 1e9);
+            double instant = Math.max(0, value - lastScrollValue) / seconds;
+            scrollVelocity = scrollVelocity * 0.7 + instant * 0.3;
         }
-        nextPageIndex++;
-        for (Post post : page) {
-            feedPanel.add(new PostPanel(post, imageCache, executor));
-            feedPanel.add(Box.createRigidArea(new Dimension(0, 12)));
-        }
-        pruneIfNeeded();
-        feedPanel.revalidate();
-        feedPanel.repaint();
-        isLoading = false;
+        lastScrollValue = value;
+        lastScrollNanos = now;
     }
 
-    private void pruneIfNeeded() {
-        int count = feedPanel.getComponentCount();
-        if (count <= retainedPostLimit * 2) {
-            return;
-        }
-        // Each post adds a panel and a rigid area, so remove in pairs from the top
-        int toRemovePairs = (count / 2) - retainedPostLimit;
-        int componentsToRemove = toRemovePairs * 2;
-        if (componentsToRemove <= 0) {
-            return;
-        }
-        // Remove from index 0 repeatedly
-        for (int i = 0; i < componentsToRemove && feedPanel.getComponentCount() > 0; i++) {
-            feedPanel.remove(0);
-        }
+    private void loadNextPage() {
+        int pixelsPerPage = feedViewport.getAverageRowHeight() * pageSize;
+        pageLoader.requestAhead(PageLoader.prefetchDepth(scrollVelocity, pixelsPerPage));
     }
 }
 
@@ -0,0 +1,371 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Always-on latency and load figures for the feed pipeline, cheap enough for production.
+ *
+ * Each {@link Stage} keeps a log-linear latency histogram (eight buckets per power of two,
+ * so percentiles are within 12.5%), updated with a few atomic adds per sample. Components
+ * register gauges for their queue depths and cache counters. The EDT watchdog times every
+ * event the EDT dispatches and keeps the ones over {@value #EDT_STALL_MILLIS}ms as stalls.
+ * For a stall still running after {@value #STACK_SAMPLE_MILLIS}ms, it also keeps what the
+ * EDT was doing at that point.
+ *
+ * Everything is exported through the {@code feedapp:type=FeedMetrics} MXBean. Stalls and
+ * slow stage samples are also emitted as JFR events, {@code feedapp.EdtStall} and
+ * {@code feedapp.SlowStage}, which a running recording picks up without extra setup.
+ */
+final class FeedMetrics {
+    static final int EDT_STALL_MILLIS = 16;
+    static final int STACK_SAMPLE_MILLIS = 100;
+    private static final long SLOW_STAGE_NANOS = 10_000_000L; // Stage samples worth a JFR event
+    private static final int RECENT_STALLS = 32;
+    private static final int STACK_DEPTH = 8;
+
+    enum Stage {
+        /** Repository read for one page request, on the page loader thread. */
+        PAGE_FETCH,
+        /** Getting a bound cell for a row: pooled or newly built, then bound. */
+        PANEL_BUILD,
+        /** Downloading an image, from connecting to the last byte; time parked waiting for a host slot is not included. */
+        IMAGE_FETCH,
+        /** Decoding an image, full or preview, before scaling. */
+        DECODE,
+        /** Scaling a decoded image to the thumbnail width. */
+        SCALE,
+        /** Applying feed updates on the EDT: pages and live batches. */
+        EDT_APPLY,
+        /** Every event the EDT dispatches, once the watchdog is installed. */
+        EDT_EVENT
+    }
+
+    private static final Map<Stage, LatencyHistogram> histograms = new EnumMap<>(Stage.class);
+    private static final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+    private static final LongAdder edtStalls = new LongAdder();
+    private static final ArrayDeque<String> recentStalls = new ArrayDeque<>(); // Guarded by itself
+    private static volatile boolean watchdogInstalled = false;
+
+    static {
+        for (Stage stage : Stage.values()) {
+            histograms.put(stage, new LatencyHistogram());
+        }
+    }
+
+    private FeedMetrics() {
+    }
+
+    /** Records the time since {@code startNanos}, a {@link System#nanoTime()} reading. */
+    static void record(Stage stage, long startNanos) {
+        long nanos = System.nanoTime() - startNanos;
+        histograms.get(stage).record(nanos);
+        if (nanos >= SLOW_STAGE_NANOS) {
+            SlowStageEvent event = new SlowStageEvent();
+            if (event.isEnabled()) {
+                event.stage = stage.name();
+                event.elapsed = nanos;
+                event.commit();
+            }
+        }
+    }
+
+    static LatencyHistogram histogram(Stage stage) {
+        return histograms.get(stage);
+    }
+
+    /** Exposes a live value, such as a queue depth, under {@code name}; replaces an earlier gauge of that name. */
+    static void registerGauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    static long getEdtStallCount() {
+        return edtStalls.sum();
+    }
+
+    /** Registers the MXBean once; later calls do nothing. */
+    static void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new Bean(), new ObjectName("feedapp:type=FeedMetrics"));
+        } catch (InstanceAlreadyExistsException e) {
+            // Registered by an earlier frame
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register feed metrics MXBean", e);
+        }
+    }
+
+    /** Starts timing EDT events. Installs once; pushes onto the system event queue. */
+    static synchronized void installEdtWatchdog() {
+        if (watchdogInstalled) {
+            return;
+        }
+        watchdogInstalled = true;
+        TimingEventQueue queue = new TimingEventQueue();
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(queue);
+        Thread sampler = new Thread(queue::sampleStalls, "feed-edt-watchdog");
+        sampler.setDaemon(true);
+        sampler.start();
+    }
+
+    private static void recordStall(String description, long nanos, String stack) {
+        edtStalls.increment();
+        String entry = String.format("%d ms %s%s", nanos / 1_000_000, description, stack == null ? "" : " at " + stack);
+        synchronized (recentStalls) {
+            if (recentStalls.size() == RECENT_STALLS) {
+                recentStalls.removeFirst();
+            }
+            recentStalls.addLast(entry);
+        }
+        EdtStallEvent event = new EdtStallEvent();
+        if (event.isEnabled()) {
+            event.event = description;
+            event.elapsed = nanos;
+            event.stack = stack;
+            event.commit();
+        }
+    }
+
+    /**
+     * Concurrent latency histogram in microseconds. Values below 8 have a bucket each;
+     * above that every power of two is split into eight equal buckets.
+     */
+    static final class LatencyHistogram {
+        private static final int SUB_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+        private final AtomicLongArray counts = new AtomicLongArray((64 - SUB_BITS + 1) * SUB_BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalMicros = new LongAdder();
+        private final AtomicLong maxMicros = new AtomicLong();
+
+        void record(long nanos) {
+            long micros = Math.max(0, nanos / 1000);
+            counts.incrementAndGet(indexOf(micros));
+            count.increment();
+            totalMicros.add(micros);
+            if (micros > maxMicros.get()) {
+                maxMicros.accumulateAndGet(micros, Math::max);
+            }
+        }
+
+        long getCount() {
+            return count.sum();
+        }
+
+        double getMeanMillis() {
+            long samples = count.sum();
+            return samples == 0 ? 0 : totalMicros.sum() / 1000.0 / samples;
+        }
+
+        double getMaxMillis() {
+            return maxMicros.get() / 1000.0;
+        }
+
+        /** Upper bound of the bucket holding the given percentile, 0-100, in milliseconds. */
+        double getPercentileMillis(double percentile) {
+            long samples = 0;
+            long[] snapshot = new long[counts.length()];
+            for (int i = 0; i < snapshot.length; i++) {
+                snapshot[i] = counts.get(i);
+                samples += snapshot[i];
+            }
+            if (samples == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(samples * percentile / 100.0));
+            long seen = 0;
+            for (int i = 0; i < snapshot.length; i++) {
+                seen += snapshot[i];
+                if (seen >= rank) {
+                    return Math.min(upperBoundOf(i), maxMicros.get()) / 1000.0;
+                }
+            }
+            return getMaxMillis();
+        }
+
+        void reset() {
+            for (int i = 0; i < counts.length(); i++) {
+                counts.set(i, 0);
+            }
+            count.reset();
+            totalMicros.reset();
+            maxMicros.set(0);
+        }
+
+        static int indexOf(long micros) {
+            if (micros < SUB_BUCKETS) {
+                return (int) micros;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(micros);
+            int sub = (int) (micros >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+        }
+
+        static long upperBoundOf(int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+            int exponent = index / SUB_BUCKETS + SUB_BITS - 1;
+            long width = 1L << (exponent - SUB_BITS);
+            long lower = (1L << exponent) + (index % SUB_BUCKETS) * width;
+            return lower + width - 1;
+        }
+    }
+
+    /** Times each dispatched event on the EDT; a sampler thread catches stalls still in progress. */
+    private static final class TimingEventQueue extends EventQueue {
+        private volatile long dispatchStartNanos = 0; // 0 while idle
+        private volatile Thread dispatchThread;
+        private volatile String sampledStack;
+
+        @Override
+        protected void dispatchEvent(AWTEvent event) {
+            dispatchThread = Thread.currentThread();
+            sampledStack = null;
+            long start = System.nanoTime();
+            dispatchStartNanos = start;
+            try {
+                super.dispatchEvent(event);
+            } finally {
+                dispatchStartNanos = 0;
+                long nanos = System.nanoTime() - start;
+                histograms.get(Stage.EDT_EVENT).record(nanos);
+                if (nanos >= EDT_STALL_MILLIS * 1_000_000L) {
+                    recordStall(describe(event), nanos, sampledStack);
+                }
+            }
+        }
+
+        void sampleStalls() {
+            long sampled = 0;
+            while (true) {
+                try {
+                    Thread.sleep(STACK_SAMPLE_MILLIS / 2);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long start = dispatchStartNanos;
+                Thread edt = dispatchThread;
+                if (start == 0 || start == sampled || edt == null
+                        || System.nanoTime() - start < STACK_SAMPLE_MILLIS * 1_000_000L) {
+                    continue;
+                }
+                sampled = start;
+                StackTraceElement[] stack = edt.getStackTrace();
+                StringBuilder text = new StringBuilder();
+                for (int i = 0; i < Math.min(STACK_DEPTH, stack.length); i++) {
+                    text.append(i == 0 ? "" : " < ").append(stack[i]);
+                }
+                if (dispatchStartNanos == start) {
+                    sampledStack = text.toString();
+                }
+            }
+        }
+
+        private static String describe(AWTEvent event) {
+            String text = event.getClass().getSimpleName() + "[" + event.paramString() + "]";
+            return text.length() <= 160 ? text : text.substring(0, 157) + "...";
+        }
+    }
+
+    private static final class Bean implements FeedMetricsMXBean {
+        @Override
+        public Map<String, Double> getLatencyMillis() {
+            Map<String, Double> out = new LinkedHashMap<>();
+            for (Map.Entry<Stage, LatencyHistogram> entry : histograms.entrySet()) {
+                String stage = entry.getKey().name().toLowerCase();
+                LatencyHistogram histogram = entry.getValue();
+                out.put(stage + ".mean", histogram.getMeanMillis());
+                out.put(stage + ".p50", histogram.getPercentileMillis(50));
+                out.put(stage + ".p99", histogram.getPercentileMillis(99));
+                out.put(stage + ".p999", histogram.getPercentileMillis(99.9));
+                out.put(stage + ".max", histogram.getMaxMillis());
+            }
+            return out;
+        }
+
+        @Override
+        public Map<String, Long> getCounts() {
+            Map<String, Long> out = new LinkedHashMap<>();
+            for (Map.Entry<Stage, LatencyHistogram> entry : histograms.entrySet()) {
+                out.put(entry.getKey().name().toLowerCase() + ".count", entry.getValue().getCount());
+            }
+            out.put("edt.stalls", edtStalls.sum());
+            for (Map.Entry<String, LongSupplier> gauge : gauges.entrySet()) {
+                out.put(gauge.getKey(), gauge.getValue().getAsLong());
+            }
+            return out;
+        }
+
+        @Override
+        public long getEdtStallCount() {
+            return edtStalls.sum();
+        }
+
+        @Override
+        public String[] getRecentEdtStalls() {
+            synchronized (recentStalls) {
+                return recentStalls.toArray(new String[0]);
+            }
+        }
+
+        @Override
+        public void reset() {
+            for (LatencyHistogram histogram : histograms.values()) {
+                histogram.reset();
+            }
+            edtStalls.reset();
+            synchronized (recentStalls) {
+                recentStalls.clear();
+            }
+        }
+    }
+
+    @Name("feedapp.EdtStall")
+    @Label("EDT Stall")
+    @Category("Feed")
+    @Description("An event on the event dispatch thread that ran longer than a frame")
+    static final class EdtStallEvent extends Event {
+        @Label("Event")
+        String event;
+
+        @Label("Elapsed")
+        @Timespan
+        long elapsed;
+
+        @Label("Stack While Stalled")
+        String stack;
+    }
+
+    @Name("feedapp.SlowStage")
+    @Label("Slow Feed Stage")
+    @Category("Feed")
+    @Description("A feed pipeline stage sample of 10 ms or more")
+    static final class SlowStageEvent extends Event {
+        @Label("Stage")
+        String stage;
+
+        @Label("Elapsed")
+        @Timespan
+        long elapsed;
+    }
+}
@@ -0,0 +1,22 @@
+import java.util.Map;
+
+/**
+ * JMX view of {@link FeedMetrics}, registered as {@code feedapp:type=FeedMetrics}.
+ * Public because the platform MBean server only introspects public interfaces.
+ */
+public interface FeedMetricsMXBean {
+
+    /** Per stage: mean, p50, p99, p999 and max, keyed like {@code image_fetch.p99}. */
+    Map<String, Double> getLatencyMillis();
+
+    /** Sample counts per stage, the EDT stall count and every registered gauge. */
+    Map<String, Long> getCounts();
+
+    long getEdtStallCount();
+
+    /** The most recent EDT stalls, oldest first, with the EDT's stack when it was sampled. */
+    String[] getRecentEdtStalls();
+
+    /** Clears histograms and stalls; gauges keep reporting live values. */
+    void reset();
+}
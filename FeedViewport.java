@@ -0,0 +1,661 @@
+import javax.swing.*;
+import javax.swing.event.ChangeListener;
+import java.awt.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+
+/**
+ * Virtualized feed view. Only the rows intersecting the visible rectangle (plus a
+ * small overscan) have a {@link FeedCell}; cells leaving that range go back to a
+ * per-{@link PostType} pool and are re-bound to the rows scrolling into view.
+ * Row heights are worked out from each post's type and text when the row is added, with
+ * wrapped lines from {@link RenderResources#TEXT_MEASURES}, so the scrollbar and row offsets
+ * are exact before any cell exists. A cell measures its row again when it is first shown.
+ * After a width change, rows on screen are measured at once and the rest are re-measured
+ * in short slices between events, keeping the row at the top of the viewport in place.
+ * The {@link RenderMode} picks the cell implementation.
+ *
+ * With {@link #setRetention}, posts far from the visible rows are evicted from the store
+ * once too many are held. Their rows keep their heights, so the scroll offset does not move
+ * and they paint as empty cards; as they come near the viewport again they are fetched
+ * from the repository by cursor and shown. Posts that arrived live are never evicted, since
+ * the repository cannot serve them again.
+ */
+class FeedViewport extends JComponent implements Scrollable {
+    private static final int PADDING = 12;
+    private static final int GAP = 12;
+    private static final int OVERSCAN = 400; // pixels above and below the visible area
+    private static final int CONTENT_WIDTH = 600;
+    private static final long REMEASURE_SLICE_NANOS = 2_000_000L;
+    private static final int REFETCH_SCREENS = 2; // Evicted rows this many screens away are fetched again
+    private static final int REFETCH_BATCH = 100;
+    private static final int REFETCH_FIRST_RETRY_MS = 500; // A run that came back empty waits this long, doubling
+    private static final int REFETCH_MAX_RETRY_MS = 30_000;
+
+    /** How cells draw a post. */
+    enum RenderMode {
+        /** A {@link PostPanel}: a tree of labels, text areas and a button per post. */
+        COMPONENTS,
+        /** A {@link PaintedPostCell}: one component per post that paints everything itself. */
+        PAINTED;
+
+        FeedCell createCell(PostType type, ImageLoader imageLoader) {
+            return this == PAINTED ? new PaintedPostCell(type, imageLoader) : new PostPanel(type, imageLoader);
+        }
+    }
+
+    private final ImageLoader imageLoader;
+    private final RenderMode renderMode;
+    private final PostStore posts = new PostStore(); // Rows are columns, bound cells get views
+    private final RowHeights heights = new RowHeights(); // cell height + GAP per row
+    private final BitSet measured = new BitSet();
+    private final Map<PostType, ArrayDeque<FeedCell>> pools = new EnumMap<>(PostType.class);
+    private final ArrayList<FeedCell> liveCells = new ArrayList<>(); // rows [liveStart, liveStart + size)
+    private final ChangeListener scrollListener = e -> layoutRows();
+    private int liveStart = 0;
+    private int measuredWidth = -1;
+    private final Timer remeasureTimer = new Timer(0, e -> remeasureSlice());
+    private int remeasureRow = -1; // Next row to re-measure at measuredWidth; -1 when all are current
+    private BiFunction<String, Integer, CompletableFuture<PostRepository.Page>> refetch; // null keeps every post
+    private int maxRetainedPosts = Integer.MAX_VALUE;
+    private boolean refetching = false;
+    private final Map<String, FailedRefetch> failedRefetches = new HashMap<>(); // By key of the run's first row
+    private final Timer refetchRetryTimer = new Timer(0, e -> refetchNear(getVisibleRect()));
+    private int generation = 0; // Bumped by setPosts and removeNotify, so fetches still in flight are dropped
+    private boolean layingOut = false;
+
+    FeedViewport(ImageLoader imageLoader) {
+        this(imageLoader, RenderMode.COMPONENTS);
+    }
+
+    FeedViewport(ImageLoader imageLoader, RenderMode renderMode) {
+        this.imageLoader = imageLoader;
+        this.renderMode = renderMode;
+        setLayout(null);
+        setOpaque(true);
+        setBackground(new Color(250, 250, 250));
+    }
+
+    /** Replaces all rows with the given posts, in order. */
+    void setPosts(List<Post> newPosts) {
+        recycleAll();
+        posts.clear();
+        measured.clear();
+        heights.clear();
+        stopRemeasure();
+        generation++;
+        refetching = false;
+        failedRefetches.clear();
+        refetchRetryTimer.stop();
+        appendPosts(newPosts);
+    }
+
+    /**
+     * Holds the content of about {@code maxRetainedPosts} posts at most, not counting posts
+     * that arrived live. Evicted posts are fetched again with {@code fetchAfter}, called on
+     * the EDT with a cursor (null for the newest post) and a limit, like
+     * {@link PostRepository#fetchAfter}; its future may complete on any thread.
+     */
+    void setRetention(int maxRetainedPosts,
+                      BiFunction<String, Integer, CompletableFuture<PostRepository.Page>> fetchAfter) {
+        this.maxRetainedPosts = maxRetainedPosts;
+        this.refetch = fetchAfter;
+    }
+
+    /** Appends rows at the end of the feed. */
+    void appendPosts(List<Post> page) {
+        long start = System.nanoTime();
+        int width = layoutWidth();
+        for (Post post : page) {
+            posts.add(post);
+            heights.add(PaintedPostCell.heightFor(post.getType(), post.getContentText(), width) + GAP);
+        }
+        revalidate();
+        repaint();
+        FeedMetrics.record(FeedMetrics.Stage.EDT_APPLY, start);
+    }
+
+    /**
+     * Merges newer posts, in any order, into the feed at their sorted rows, skipping posts
+     * already shown. Rows and cells only shift; nothing is re-sorted or rebuilt. Unless the
+     * view is at the very top, the row at the top of the viewport stays where it is, so
+     * posts arriving above it do not push the content the user is reading.
+     */
+    void insertPosts(List<Post> batch) {
+        long start = System.nanoTime();
+        try {
+            insertPostsUntimed(batch);
+        } finally {
+            FeedMetrics.record(FeedMetrics.Stage.EDT_APPLY, start);
+        }
+    }
+
+    private void insertPostsUntimed(List<Post> batch) {
+        Rectangle visible = getVisibleRect();
+        int anchorRow = posts.isEmpty() ? -1 : heights.rowAt(visible.y - PADDING);
+        long anchorDelta = anchorRow < 0 ? 0 : visible.y - (PADDING + heights.offsetOf(anchorRow));
+
+        int[] rows = posts.insert(batch);
+        if (rows.length == 0) {
+            return;
+        }
+        int[] rowHeights = new int[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            rowHeights[i] = rowHeight(rows[i], layoutWidth());
+        }
+        heights.insert(rows, rowHeights);
+
+        for (int row : rows) {
+            posts.pin(row); // Live posts cannot be fetched again
+        }
+
+        BitSet shifted = new BitSet();
+        for (int row = measured.nextSetBit(0); row >= 0; row = measured.nextSetBit(row + 1)) {
+            shifted.set(shiftedRow(row, rows));
+        }
+        measured.clear();
+        measured.or(shifted);
+
+        if (!liveCells.isEmpty()) {
+            int first = shiftedRow(liveStart, rows);
+            int last = shiftedRow(liveStart + liveCells.size() - 1, rows);
+            if (last - first + 1 == liveCells.size()) {
+                liveStart = first;
+            } else {
+                recycleAll(); // Posts landed between bound rows; the next layout binds afresh
+            }
+        }
+        if (remeasureRow >= 0) {
+            remeasureRow = shiftedRow(remeasureRow, rows);
+        }
+
+        revalidate();
+        if (anchorRow >= 0 && visible.y > 0) {
+            keepAnchor(shiftedRow(anchorRow, rows), anchorDelta, visible.y);
+        }
+        repaint();
+    }
+
+    /** Row that {@code row} moved to after inserting at the given final rows, ascending. */
+    private static int shiftedRow(int row, int[] inserted) {
+        // Insertion i went in front of the existing row inserted[i] - i
+        int low = 0;
+        int high = inserted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (inserted[mid] - mid <= row) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return row + low;
+    }
+
+    int getPostCount() {
+        return posts.size();
+    }
+
+    /** Posts whose content is held; the others are rows kept only as their height. */
+    int getRetainedPostCount() {
+        return posts.retainedSize();
+    }
+
+    /** Mean row height including the gap. */
+    int getAverageRowHeight() {
+        if (posts.isEmpty()) {
+            return PaintedPostCell.heightFor(PostType.PHOTO, null, layoutWidth()) + GAP;
+        }
+        return (int) (heights.total() / posts.size());
+    }
+
+    /** Number of cells currently attached to the view; bounded by the visible rows. */
+    int getLiveCellCount() {
+        int count = 0;
+        for (FeedCell cell : liveCells) {
+            if (cell != null) { // Evicted rows in range hold no cell
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        JViewport viewport = enclosingViewport();
+        if (viewport != null) {
+            viewport.addChangeListener(scrollListener);
+        }
+        if (remeasureRow >= 0) {
+            remeasureTimer.start();
+        }
+    }
+
+    @Override
+    public void removeNotify() {
+        JViewport viewport = enclosingViewport();
+        if (viewport != null) {
+            viewport.removeChangeListener(scrollListener);
+        }
+        remeasureTimer.stop();
+        // Out of the hierarchy nothing is shown, so nothing is fetched back; a late result is dropped
+        refetchRetryTimer.stop();
+        refetching = false;
+        failedRefetches.clear();
+        generation++;
+        super.removeNotify();
+    }
+
+    @Override
+    public void doLayout() {
+        layoutRows();
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        long content = heights.total() - (posts.isEmpty() ? 0 : GAP);
+        int height = (int) Math.min(Integer.MAX_VALUE, content + 2L * PADDING);
+        return new Dimension(CONTENT_WIDTH + 2 * PADDING, height);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        g.setColor(getBackground());
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+        if (posts.retainedSize() < posts.size()) {
+            paintEvictedRows(g, clip);
+        }
+    }
+
+    /** Evicted rows have no cell; they show as empty cards until their posts are back. */
+    private void paintEvictedRows(Graphics g, Rectangle clip) {
+        int first = heights.rowAt(clip.y - PADDING);
+        int last = heights.rowAt(clip.y + clip.height - PADDING);
+        for (int row = Math.max(0, first); row <= last; row++) {
+            if (posts.isEvicted(row)) {
+                int y = (int) (PADDING + heights.offsetOf(row));
+                int width = getWidth() - 2 * PADDING;
+                int height = heights.get(row) - GAP;
+                g.setColor(RenderResources.CARD_BG);
+                g.fillRect(PADDING, y, width, height);
+                RenderResources.CARD_BORDER.paintBorder(this, g, PADDING, y, width, height);
+            }
+        }
+    }
+
+    private void layoutRows() {
+        if (layingOut) {
+            return;
+        }
+        layingOut = true;
+        try {
+            layoutRowsUnguarded();
+        } finally {
+            layingOut = false;
+        }
+    }
+
+    private void layoutRowsUnguarded() {
+        int cellWidth = getWidth() - 2 * PADDING;
+        Rectangle visible = getVisibleRect();
+        if (cellWidth <= 0 || visible.height <= 0 || posts.isEmpty()) {
+            recycleAll();
+            return;
+        }
+        if (cellWidth != measuredWidth) {
+            // Wrapped text changes height with width: rows on screen are measured below, the rest in slices
+            measuredWidth = cellWidth;
+            measured.clear();
+            remeasureRow = 0;
+            remeasureTimer.restart();
+        }
+
+        int anchorRow = heights.rowAt(visible.y - PADDING);
+        long anchorDelta = visible.y - (PADDING + heights.offsetOf(anchorRow));
+
+        int first = heights.rowAt(visible.y - PADDING - OVERSCAN);
+        int last = heights.rowAt(visible.y + visible.height + OVERSCAN - PADDING);
+        releaseOutside(first, last);
+
+        boolean heightsChanged = false;
+        for (int row = first; row <= last; row++) {
+            FeedCell cell = cellFor(row);
+            if (cell != null && !measured.get(row)) {
+                int measuredHeight = cell.measureHeight(cellWidth);
+                measured.set(row);
+                if (heights.get(row) != measuredHeight + GAP) {
+                    heights.set(row, measuredHeight + GAP);
+                    heightsChanged = true;
+                }
+            }
+        }
+
+        for (int row = first; row <= last; row++) {
+            FeedCell cell = liveCells.get(row - liveStart);
+            if (cell == null) {
+                continue; // Evicted; painted as a placeholder
+            }
+            int y = (int) (PADDING + heights.offsetOf(row));
+            int height = heights.get(row) - GAP;
+            JComponent component = cell.getComponent();
+            component.setBounds(PADDING, y, cellWidth, height);
+            component.validate();
+            cell.setImagePriority(distanceFromVisible(y, height, visible));
+        }
+
+        if (heightsChanged) {
+            revalidate();
+            // Keep the row at the top of the viewport still while rows above it settle
+            keepAnchor(anchorRow, anchorDelta, visible.y);
+            repaint();
+        }
+        evictFarRows(first, last);
+        refetchNear(visible);
+    }
+
+    /** Once too many posts are held, evicts those well away from rows [first, last] in one pass. */
+    private void evictFarRows(int first, int last) {
+        if (refetch == null || posts.evictableSize() <= maxRetainedPosts) {
+            return;
+        }
+        // Keep a margin on both sides, so eviction runs again only after many more rows arrive
+        int margin = maxRetainedPosts / 4;
+        BitSet far = new BitSet(posts.size());
+        far.set(0, Math.max(0, first - margin));
+        far.set(Math.min(posts.size(), last + 1 + margin), posts.size());
+        posts.evict(far);
+    }
+
+    /**
+     * Fetches back the first run of evicted rows within {@value #REFETCH_SCREENS} screens of the
+     * viewport. A run whose last fetch failed or restored nothing, as when the repository no
+     * longer serves those posts, is skipped until its backoff has passed.
+     */
+    private void refetchNear(Rectangle visible) {
+        if (refetch == null || refetching || posts.retainedSize() == posts.size()) {
+            return;
+        }
+        int from = heights.rowAt(visible.y - PADDING - (long) REFETCH_SCREENS * visible.height);
+        int to = heights.rowAt(visible.y - PADDING + (long) (REFETCH_SCREENS + 1) * visible.height);
+        long now = System.nanoTime();
+        int start = from;
+        String runKey = null;
+        while (start >= 0 && start <= to) {
+            if (!posts.isEvicted(start)) {
+                start++;
+                continue;
+            }
+            runKey = posts.getCreatedAtMillis(start) + "/" + posts.getId(start);
+            FailedRefetch failed = failedRefetches.get(runKey);
+            if (failed == null || now - failed.retryAtNanos >= 0) {
+                break;
+            }
+            while (start <= to && posts.isEvicted(start)) {
+                start++; // Still backing off; try the next run
+            }
+            runKey = null;
+        }
+        if (runKey == null) {
+            return;
+        }
+        int end = start;
+        while (end < posts.size() && end - start < REFETCH_BATCH && posts.isEvicted(end)) {
+            end++;
+        }
+        // Evicted rows are all from the repository, so the page after the row above the run is the run.
+        // Viewport rows shift with live posts and are not repository rows, so no row hint is given.
+        String cursor = start == 0 ? null
+                : FeedCursor.at(posts.getCreatedAtMillis(start - 1), posts.getId(start - 1), -1).encode();
+        int requestGeneration = generation;
+        String key = runKey;
+        refetching = true;
+        refetch.apply(cursor, end - start).whenComplete((page, error) -> SwingUtilities.invokeLater(() -> {
+            if (requestGeneration != generation) {
+                return;
+            }
+            refetching = false;
+            int restored = page == null ? 0 : restorePosts(page.posts);
+            if (restored > 0) {
+                failedRefetches.remove(key);
+            } else {
+                backOffRefetch(key);
+            }
+        }));
+    }
+
+    /** Holds back another fetch of the run for twice as long as the last time, up to the cap. */
+    private void backOffRefetch(String runKey) {
+        FailedRefetch failed = failedRefetches.computeIfAbsent(runKey, k -> new FailedRefetch());
+        failed.delayMillis = failed.delayMillis == 0 ? REFETCH_FIRST_RETRY_MS
+                : Math.min(REFETCH_MAX_RETRY_MS, failed.delayMillis * 2);
+        failed.retryAtNanos = System.nanoTime() + failed.delayMillis * 1_000_000L;
+        // Try again then even if nothing scrolls meanwhile
+        refetchRetryTimer.setInitialDelay(failed.delayMillis);
+        refetchRetryTimer.setRepeats(false);
+        refetchRetryTimer.restart();
+    }
+
+    /**
+     * Puts fetched posts back into their evicted rows, found by key since rows may have
+     * shifted. Returns how many were restored.
+     */
+    private int restorePosts(List<Post> fetched) {
+        Rectangle visible = getVisibleRect();
+        int anchorRow = heights.rowAt(visible.y - PADDING);
+        long anchorDelta = visible.y - (PADDING + heights.offsetOf(anchorRow));
+        int restored = 0;
+        for (Post post : fetched) {
+            int row = posts.rowOf(FeedCursor.toMillis(post.getCreatedAt()), post.getId());
+            if (row >= 0 && posts.restore(row, post)) {
+                restored++;
+                if (!measured.get(row)) {
+                    // Heights of evicted rows were skipped by any re-measure since
+                    heights.set(row, rowHeight(row, layoutWidth()));
+                }
+            }
+        }
+        if (restored > 0) {
+            revalidate();
+            if (anchorRow >= 0) {
+                keepAnchor(anchorRow, anchorDelta, visible.y);
+            }
+            repaint();
+        }
+        return restored;
+    }
+
+    /**
+     * Re-measures rows not measured by a cell at the current width, from {@link #remeasureRow}
+     * on, for at most {@value #REMEASURE_SLICE_NANOS}ns; the timer runs the next slice.
+     */
+    private void remeasureSlice() {
+        if (remeasureRow < 0 || remeasureRow >= posts.size()) {
+            stopRemeasure();
+            return;
+        }
+        Rectangle visible = getVisibleRect();
+        int anchorRow = heights.rowAt(visible.y - PADDING);
+        long anchorDelta = visible.y - (PADDING + heights.offsetOf(anchorRow));
+        long deadline = System.nanoTime() + REMEASURE_SLICE_NANOS;
+        boolean heightsChanged = false;
+        int row = remeasureRow;
+        // Check the clock every 64 rows; a row takes about a microsecond
+        while (row < posts.size() && ((row - remeasureRow) % 64 != 0 || System.nanoTime() < deadline)) {
+            if (!measured.get(row) && !posts.isEvicted(row)) {
+                int height = rowHeight(row, measuredWidth);
+                if (heights.get(row) != height) {
+                    heights.set(row, height);
+                    heightsChanged = true;
+                }
+            }
+            row++;
+        }
+        remeasureRow = row;
+        if (remeasureRow >= posts.size()) {
+            stopRemeasure();
+        }
+        if (heightsChanged) {
+            revalidate();
+            keepAnchor(anchorRow, anchorDelta, visible.y);
+            repaint();
+        }
+    }
+
+    private void stopRemeasure() {
+        remeasureTimer.stop();
+        remeasureRow = -1;
+    }
+
+    /** Scrolls so the anchor row is again {@code anchorDelta} above the top of the viewport. */
+    private void keepAnchor(int anchorRow, long anchorDelta, int viewY) {
+        JViewport viewport = enclosingViewport();
+        long anchorY = PADDING + heights.offsetOf(anchorRow) + anchorDelta;
+        if (viewport == null || anchorY == viewY) {
+            return;
+        }
+        if (anchorY + viewport.getExtentSize().height > getHeight()) {
+            // Grow now rather than at the next validation, so the anchor position is in range
+            setSize(getWidth(), getPreferredSize().height);
+        }
+        Point position = viewport.getViewPosition();
+        position.y = (int) Math.max(0, anchorY);
+        viewport.setViewPosition(position);
+    }
+
+    /** Height plus gap of the row as a painted cell of the given width lays it out. */
+    private int rowHeight(int row, int width) {
+        return PaintedPostCell.heightFor(posts.getType(row), posts.getContentText(row), width) + GAP;
+    }
+
+    private int layoutWidth() {
+        return measuredWidth > 0 ? measuredWidth : CONTENT_WIDTH;
+    }
+
+    private static int distanceFromVisible(int y, int height, Rectangle visible) {
+        if (y + height < visible.y) {
+            return visible.y - (y + height);
+        }
+        return Math.max(0, y - (visible.y + visible.height));
+    }
+
+    private FeedCell cellFor(int row) {
+        if (liveCells.isEmpty()) {
+            liveStart = row;
+        }
+        while (row < liveStart) {
+            liveStart--;
+            liveCells.add(0, obtainCell(liveStart));
+        }
+        while (row >= liveStart + liveCells.size()) {
+            liveCells.add(obtainCell(liveStart + liveCells.size()));
+        }
+        FeedCell cell = liveCells.get(row - liveStart);
+        if (cell == null && !posts.isEvicted(row)) {
+            cell = obtainCell(row); // Restored since the row came into range
+            liveCells.set(row - liveStart, cell);
+        }
+        return cell;
+    }
+
+    /** A bound cell for the row, or null for an evicted row. */
+    private FeedCell obtainCell(int row) {
+        if (posts.isEvicted(row)) {
+            return null;
+        }
+        long start = System.nanoTime();
+        PostType type = posts.getType(row);
+        ArrayDeque<FeedCell> pool = pools.computeIfAbsent(type, t -> new ArrayDeque<>());
+        FeedCell cell = pool.poll();
+        if (cell == null) {
+            cell = renderMode.createCell(type, imageLoader);
+        }
+        cell.bind(posts.get(row));
+        add(cell.getComponent());
+        FeedMetrics.record(FeedMetrics.Stage.PANEL_BUILD, start);
+        return cell;
+    }
+
+    private void releaseOutside(int first, int last) {
+        // Each end is released as one range, so the list shifts once
+        int end = liveStart + liveCells.size();
+        int keepFrom = Math.min(Math.max(first, liveStart), end);
+        int keepTo = Math.max(Math.min(last + 1, end), keepFrom);
+        releaseRange(keepTo - liveStart, liveCells.size());
+        releaseRange(0, keepFrom - liveStart);
+        liveStart = liveCells.isEmpty() ? 0 : keepFrom;
+    }
+
+    /** Releases the cells at list indices [from, to) and removes them from the list at once. */
+    private void releaseRange(int from, int to) {
+        List<FeedCell> range = liveCells.subList(from, to);
+        for (FeedCell cell : range) {
+            release(cell);
+        }
+        range.clear();
+    }
+
+    private void recycleAll() {
+        for (FeedCell cell : liveCells) {
+            release(cell);
+        }
+        liveCells.clear();
+        liveStart = 0;
+    }
+
+    private void release(FeedCell cell) {
+        if (cell == null) {
+            return;
+        }
+        cell.unbind();
+        remove(cell.getComponent());
+        pools.computeIfAbsent(cell.getPostType(), t -> new ArrayDeque<>()).push(cell);
+    }
+
+    private JViewport enclosingViewport() {
+        Container parent = getParent();
+        return parent instanceof JViewport ? (JViewport) parent : null;
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return getPreferredSize();
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return 16;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return true;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return false;
+    }
+
+    /** Backoff state of an evicted run whose fetch came back without restoring anything. */
+    private static final class FailedRefetch {
+        private int delayMillis;
+        private long retryAtNanos;
+    }
+}
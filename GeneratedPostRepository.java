@@ -0,0 +1,95 @@
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Generated feed of {@code totalPosts} posts, newest first. Posts are built once into a
+ * {@link PostStore}, so a page is a slice of it rather than freshly generated objects.
+ */
+class GeneratedPostRepository implements PostRepository {
+    private final int totalPosts;
+    private final PostStore store;
+    private final FeedCursor.Keys keys;
+
+    GeneratedPostRepository(int totalPosts) {
+        this.totalPosts = Math.max(0, totalPosts);
+        this.store = new PostStore(this.totalPosts);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < this.totalPosts; i++) {
+            store.add(generatePost(this.totalPosts - i, i, now));
+        }
+        this.keys = new FeedCursor.Keys() {
+            @Override
+            public int size() {
+                return store.size();
+            }
+
+            @Override
+            public long millisAt(int row) {
+                return store.getCreatedAtMillis(row);
+            }
+
+            @Override
+            public long idAt(int row) {
+                return store.getId(row);
+            }
+        };
+    }
+
+    @Override
+    public List<Post> fetchPage(int pageIndex, int pageSize) {
+        if (pageSize <= 0 || pageIndex < 0) {
+            return List.of();
+        }
+        int start = pageIndex * pageSize;
+        if (start >= totalPosts) {
+            return List.of();
+        }
+        int endExclusive = Math.min(start + pageSize, totalPosts);
+        return store.slice(start, endExclusive);
+    }
+
+    @Override
+    public Page fetchAfter(String cursor, int pageSize) {
+        int start = cursor == null ? 0 : FeedCursor.decode(cursor).firstRowAfter(keys);
+        int end = (int) Math.min((long) start + Math.max(0, pageSize), totalPosts);
+        if (end <= start) {
+            return new Page(List.of(), cursor);
+        }
+        int last = end - 1;
+        String next = FeedCursor.at(store.getCreatedAtMillis(last), store.getId(last), last).encode();
+        return new Page(store.slice(start, end), next);
+    }
+
+    @Override
+    public List<Post> fetchRange(LocalDateTime from, LocalDateTime to) {
+        int start = FeedCursor.firstRowOlderThan(FeedCursor.toMillis(to), keys);
+        int end = FeedCursor.firstRowOlderThan(FeedCursor.toMillis(from), keys);
+        return start < end ? store.slice(start, end) : List.of();
+    }
+
+    private static Post generatePost(long id, int index, LocalDateTime now) {
+        String author = "user" + index;
+        LocalDateTime createdAt = now.minusMinutes(index);
+        int mod = index % 6;
+        switch (mod) {
+            case 0:
+                return Post.text(id, author, createdAt, "Text post #" + index + " — welcome to the feed");
+            case 1:
+            case 2: {
+                String img = "https://picsum.photos/id/" + (100 + (index % 100)) + "/800/500";
+                return Post.photo(id, author, createdAt, img, "Photo caption for post #" + index);
+            }
+            case 3:
+            case 4: {
+                String video = (index % 2 == 0)
+                        ? "https://www.youtube.com/watch?v=dQw4w9WgXcQ"
+                        : "https://vimeo.com/76979871";
+                return Post.video(id, author, createdAt, video, "Video caption for post #" + index);
+            }
+            default:
+                return Post.text(id, author, createdAt, "Another text post #" + index);
+        }
+    }
+}
+
+
@@ -1,29 +1,246 @@
 import javax.swing.ImageIcon;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.SampleModel;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.SoftReference;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
+/**
+ * In-memory LRU of decoded images, optionally backed by a {@link DiskImageCache}.
+ *
+ * Two bounding modes exist: by entry count ({@link #ImageCache(int)}), where values are
+ * soft references the GC may clear under memory pressure, and by decoded size
+ * ({@link #withMaxBytes(long, DiskImageCache)}), where values are held strongly and each
+ * entry weighs width × height × bytes per pixel.
+ */
 class ImageCache {
-    private final int capacity;
-    private final LinkedHashMap<String, SoftReference<ImageIcon>> lruMap;
+    private final int capacity;      // Entry bound; Integer.MAX_VALUE in byte mode
+    private final long maxBytes;     // Weight bound; Long.MAX_VALUE in count mode
+    private final boolean softValues;
+    private final LinkedHashMap<String, Entry> lruMap;
+    private final ReferenceQueue<ImageIcon> clearedRefs = new ReferenceQueue<>();
+    private final DiskImageCache secondTier; // Nullable
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long softRefClears;
+    private long currentWeight;
 
     ImageCache(int capacity) {
-        this.capacity = Math.max(1, capacity);
-        this.lruMap = new LinkedHashMap<String, SoftReference<ImageIcon>>(capacity, 0.75f, true) {
-            @Override
-            protected boolean removeEldestEntry(Map.Entry<String, SoftReference<ImageIcon>> eldest) {
-                return size() > ImageCache.this.capacity;
-            }
-        };
+        this(capacity, null);
+    }
+
+    ImageCache(int capacity, DiskImageCache secondTier) {
+        this(Math.max(1, capacity), Long.MAX_VALUE, true, secondTier);
+    }
+
+    private ImageCache(int capacity, long maxBytes, boolean softValues, DiskImageCache secondTier) {
+        this.capacity = capacity;
+        this.maxBytes = maxBytes;
+        this.softValues = softValues;
+        this.secondTier = secondTier;
+        this.lruMap = new LinkedHashMap<>(Math.min(capacity, 256), 0.75f, true);
+    }
+
+    /** Cache bounded by the decoded size of its images, held strongly so only eviction drops them. */
+    static ImageCache withMaxBytes(long maxBytes, DiskImageCache secondTier) {
+        return new ImageCache(Integer.MAX_VALUE, Math.max(1, maxBytes), false, secondTier);
     }
 
     public synchronized ImageIcon get(String url) {
-        SoftReference<ImageIcon> ref = lruMap.get(url);
-        return ref == null ? null : ref.get();
+        drainClearedReferences();
+        Entry entry = lruMap.get(url);
+        ImageIcon icon = entry == null ? null : entry.icon();
+        if (icon == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return icon;
+    }
+
+    private synchronized ImageIcon peek(String url) {
+        drainClearedReferences();
+        Entry entry = lruMap.get(url);
+        return entry == null ? null : entry.icon();
     }
 
     public synchronized void put(String url, ImageIcon icon) {
-        lruMap.put(url, new SoftReference<>(icon));
+        drainClearedReferences();
+        long weight = weigh(icon);
+        Entry previous = lruMap.put(url, softValues
+                ? new SoftEntry(url, icon, weight, clearedRefs)
+                : new StrongEntry(icon, weight));
+        if (previous != null) {
+            currentWeight -= previous.weight();
+            previous.release();
+        }
+        currentWeight += weight;
+        evictIfNeeded(url);
+    }
+
+    /**
+     * Looks the URL up in memory, then on disk, promoting disk hits into memory.
+     * May block on file I/O, so never call it on the EDT.
+     */
+    public ImageIcon getOrLoadFromDisk(String url) {
+        // Callers have already counted the memory miss with get()
+        ImageIcon icon = peek(url);
+        if (icon != null || secondTier == null) {
+            return icon;
+        }
+        BufferedImage thumbnail = secondTier.read(url);
+        if (thumbnail == null) {
+            return null;
+        }
+        icon = new ImageIcon(thumbnail);
+        put(url, icon);
+        return icon;
+    }
+
+    /** Caches a downscaled thumbnail in memory and writes it through to disk. Call off the EDT. */
+    public void putThumbnail(String url, BufferedImage thumbnail) {
+        put(url, new ImageIcon(thumbnail));
+        if (secondTier != null) {
+            secondTier.write(url, thumbnail);
+        }
+    }
+
+    public synchronized Stats stats() {
+        drainClearedReferences();
+        return new Stats(hits, misses, evictions, softRefClears, currentWeight, lruMap.size());
+    }
+
+    /** Approximate heap cost of the decoded pixels behind an icon. */
+    static long weigh(ImageIcon icon) {
+        Image image = icon.getImage();
+        int bytesPerPixel = 4;
+        if (image instanceof BufferedImage) {
+            // Storage per pixel, e.g. 4 for TYPE_INT_RGB even though only 24 bits are used
+            SampleModel samples = ((BufferedImage) image).getSampleModel();
+            int bits = samples.getNumDataElements() * DataBuffer.getDataTypeSize(samples.getDataType());
+            bytesPerPixel = Math.max(1, (bits + 7) / 8);
+        }
+        return (long) Math.max(0, icon.getIconWidth()) * Math.max(0, icon.getIconHeight()) * bytesPerPixel;
+    }
+
+    private void evictIfNeeded(String justAdded) {
+        Iterator<Map.Entry<String, Entry>> eldest = lruMap.entrySet().iterator();
+        while ((lruMap.size() > capacity || currentWeight > maxBytes) && eldest.hasNext()) {
+            Map.Entry<String, Entry> candidate = eldest.next();
+            if (candidate.getKey().equals(justAdded) && lruMap.size() == 1) {
+                break; // A single oversized image is still kept
+            }
+            eldest.remove();
+            currentWeight -= candidate.getValue().weight();
+            candidate.getValue().release();
+            evictions++;
+        }
+    }
+
+    private void drainClearedReferences() {
+        SoftEntry cleared;
+        while ((cleared = (SoftEntry) clearedRefs.poll()) != null) {
+            if (lruMap.get(cleared.key) == cleared) {
+                lruMap.remove(cleared.key);
+                currentWeight -= cleared.weight;
+                softRefClears++;
+            }
+        }
+    }
+
+    /** Point-in-time counters; hit rate is hits / (hits + misses). */
+    static final class Stats {
+        final long hits;
+        final long misses;
+        final long evictions;
+        final long softRefClears;
+        final long currentWeight;
+        final int size;
+
+        Stats(long hits, long misses, long evictions, long softRefClears, long currentWeight, int size) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.softRefClears = softRefClears;
+            this.currentWeight = currentWeight;
+            this.size = size;
+        }
+
+        double hitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 0.0 : (double) hits / requests;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hits=%d misses=%d hitRate=%.2f evictions=%d softRefClears=%d weight=%d entries=%d",
+                    hits, misses, hitRate(), evictions, softRefClears, currentWeight, size);
+        }
+    }
+
+    private interface Entry {
+        ImageIcon icon();
+
+        long weight();
+
+        void release();
+    }
+
+    private static final class StrongEntry implements Entry {
+        private final ImageIcon icon;
+        private final long weight;
+
+        StrongEntry(ImageIcon icon, long weight) {
+            this.icon = icon;
+            this.weight = weight;
+        }
+
+        @Override
+        public ImageIcon icon() {
+            return icon;
+        }
+
+        @Override
+        public long weight() {
+            return weight;
+        }
+
+        @Override
+        public void release() {
+        }
+    }
+
+    private static final class SoftEntry extends SoftReference<ImageIcon> implements Entry {
+        private final String key;
+        private final long weight;
+
+        SoftEntry(String key, ImageIcon icon, long weight, ReferenceQueue<ImageIcon> queue) {
+            super(icon, queue);
+            this.key = key;
+            this.weight = weight;
+        }
+
+        @Override
+        public ImageIcon icon() {
+            return get();
+        }
+
+        @Override
+        public long weight() {
+            return weight;
+        }
+
+        @Override
+        public void release() {
+            // Cleared here so the reference is not counted as a GC clear later
+            clear();
+        }
     }
 }
 
@@ -0,0 +1,208 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives {@link ImageLoader} against a local HTTP stub server that answers every image
+ * request after a configurable latency, and checks the loader's limits.
+ *
+ * Latency run: images spread over two host names of the same server load concurrently,
+ * never more than the per-host limit at once per host. The same load with downloads
+ * capped at the old platform pool size shows what blocking reads used to cost.
+ * Busy-host run: with the queue full of one host's images, a visible image on another
+ * host must start at once instead of waiting for a worker held by the busy host.
+ * Overload run: many large images downloaded at once into one slow decoder with a short
+ * queue; every request must finish, either loaded or dropped, and none may hang.
+ * Each run also reports how soon images showed their first pixels, preview or not.
+ *
+ * Usage: java -Djava.awt.headless=true ImageLoadHarness [latencyMillis] [images]
+ * Exits with status 1 if a check fails.
+ */
+public final class ImageLoadHarness {
+    private final HttpServer server;
+    private final int latencyMillis;
+    private final byte[] image;
+    private final Map<String, AtomicInteger> active = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> peak = new ConcurrentHashMap<>();
+    private final Map<String, Long> arrivals = new ConcurrentHashMap<>(); // Request path to System.nanoTime()
+
+    private ImageLoadHarness(int latencyMillis, byte[] image) throws IOException {
+        this.latencyMillis = latencyMillis;
+        this.image = image;
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/img/", this::serve);
+        server.start();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int latencyMillis = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int images = args.length > 1 ? Integer.parseInt(args[1]) : 60;
+        boolean ok = true;
+
+        ImageLoadHarness harness = new ImageLoadHarness(latencyMillis, Thumbnailer.syntheticJpeg(800, 500));
+        try {
+            int oldPoolSize = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+            long pooled = harness.loadAll("platform-pool-sized", images,
+                    new ImageLoader(ImageCache.withMaxBytes(Long.MAX_VALUE, null), oldPoolSize,
+                            ImageLoader.DEFAULT_MAX_FETCHES_PER_HOST, 1, images));
+            ok &= pooled >= 0;
+            harness.peak.clear();
+            // Room to decode every image, so this run measures latency rather than shedding
+            long staged = harness.loadAll("virtual-threads", images,
+                    new ImageLoader(ImageCache.withMaxBytes(Long.MAX_VALUE, null), ImageLoader.DEFAULT_MAX_FETCHES,
+                            ImageLoader.DEFAULT_MAX_FETCHES_PER_HOST, Runtime.getRuntime().availableProcessors(), images));
+            ok &= staged >= 0;
+            for (Map.Entry<String, AtomicInteger> host : harness.peak.entrySet()) {
+                boolean withinLimit = host.getValue().get() <= ImageLoader.DEFAULT_MAX_FETCHES_PER_HOST;
+                System.out.printf("  host %s: at most %d concurrent requests%s%n", host.getKey(),
+                        host.getValue().get(), withinLimit ? "" : " -- over the per-host limit");
+                ok &= withinLimit;
+            }
+            ok &= harness.loadBehindBusyHost(images);
+        } finally {
+            harness.server.stop(0);
+        }
+
+        // Overload: large images, no latency, one decoder with room for four
+        harness = new ImageLoadHarness(0, Thumbnailer.syntheticJpeg(2400, 1500));
+        try {
+            ImageLoader loader = new ImageLoader(ImageCache.withMaxBytes(Long.MAX_VALUE, null),
+                    ImageLoader.DEFAULT_MAX_FETCHES, ImageLoader.DEFAULT_MAX_FETCHES_PER_HOST, 1, 4);
+            long elapsed = harness.loadAll("overload", images * 2, loader);
+            boolean shed = loader.getDroppedCount() > 0;
+            System.out.printf("  %d dropped by the decode queue%s%n", loader.getDroppedCount(),
+                    shed ? "" : " -- expected some to be shed");
+            ok &= elapsed >= 0 && shed;
+        } finally {
+            harness.server.stop(0);
+        }
+
+        System.out.println(ok ? "OK" : "FAILED");
+        System.exit(ok ? 0 : 1);
+    }
+
+    /** Requests every image at once; returns the wall time in ms, or -1 if a request hung or failed. */
+    private long loadAll(String name, int images, ImageLoader loader) throws InterruptedException {
+        String[] hosts = {"localhost", "127.0.0.1"};
+        int port = server.getAddress().getPort();
+        long start = System.nanoTime();
+        List<CompletableFuture<?>> futures = new ArrayList<>(images);
+        LongAdder firstPixelNanos = new LongAdder(); // Preview or, failing that, the thumbnail
+        LongAdder fullNanos = new LongAdder();
+        LongAdder previews = new LongAdder();
+        LongAdder shown = new LongAdder();
+        for (int i = 0; i < images; i++) {
+            String url = "http://" + hosts[i % hosts.length] + ":" + port + "/img/" + name + "/" + i;
+            ImageLoader.ImageRequest request = loader.load(url, i);
+            request.preview().thenAccept(preview -> {
+                if (preview != null) {
+                    previews.increment();
+                    shown.increment();
+                    firstPixelNanos.add(System.nanoTime() - start);
+                }
+            });
+            futures.add(request.future().whenComplete((icon, error) -> {
+                if (icon != null) {
+                    long elapsed = System.nanoTime() - start;
+                    fullNanos.add(elapsed);
+                    if (request.preview().getNow(null) == null) {
+                        shown.increment();
+                        firstPixelNanos.add(elapsed);
+                    }
+                }
+            }));
+        }
+        int loaded = 0;
+        int dropped = 0;
+        int failed = 0;
+        for (CompletableFuture<?> future : futures) {
+            try {
+                future.get(30, TimeUnit.SECONDS);
+                loaded++;
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof ImageLoader.LoadDroppedException) {
+                    dropped++;
+                } else {
+                    failed++;
+                }
+            } catch (TimeoutException e) {
+                failed++;
+            }
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        loader.shutdown();
+        System.out.printf("%-20s %d images at %d ms latency: %d ms (%d loaded, %d dropped, %d failed)%n",
+                name, images, latencyMillis, elapsedMillis, loaded, dropped, failed);
+        if (loaded > 0) {
+            System.out.printf("  %d previews; first pixels after %d ms on average, full thumbnail after %d ms%n",
+                    previews.sum(), firstPixelNanos.sum() / shown.sum() / 1_000_000, fullNanos.sum() / loaded / 1_000_000);
+        }
+        return failed == 0 ? elapsedMillis : -1;
+    }
+
+    /** Queues every image on one host, then one visible image on another; true if that one was not held up. */
+    private boolean loadBehindBusyHost(int images) throws Exception {
+        int port = server.getAddress().getPort();
+        ImageLoader loader = new ImageLoader(ImageCache.withMaxBytes(Long.MAX_VALUE, null), ImageLoader.DEFAULT_MAX_FETCHES,
+                ImageLoader.DEFAULT_MAX_FETCHES_PER_HOST, Runtime.getRuntime().availableProcessors(), images + 1);
+        try {
+            List<CompletableFuture<?>> busy = new ArrayList<>(images);
+            for (int i = 0; i < images; i++) {
+                busy.add(loader.load("http://localhost:" + port + "/img/busy-host/" + i, 1).future());
+            }
+            Thread.sleep(latencyMillis / 4); // Every worker has taken a busy-host image by now
+            long start = System.nanoTime();
+            String path = "/img/other-host/0";
+            loader.load("http://127.0.0.1:" + port + path, 0).future().get(30, TimeUnit.SECONDS);
+            long waitedMillis = (arrivals.get(path) - start) / 1_000_000;
+            // Waiting for a busy-host download to free a worker would take most of a round trip
+            boolean prompt = waitedMillis < latencyMillis / 2;
+            System.out.printf("%-20s visible image on another host requested after %d ms behind %d queued%s%n",
+                    "busy-host", waitedMillis, images, prompt ? "" : " -- held up by the busy host");
+            CompletableFuture.allOf(busy.toArray(new CompletableFuture<?>[0])).get(30, TimeUnit.SECONDS);
+            return prompt;
+        } finally {
+            loader.shutdown();
+        }
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        arrivals.put(exchange.getRequestURI().getPath(), System.nanoTime());
+        String host = exchange.getRequestHeaders().getFirst("Host");
+        host = host == null ? "?" : host.replaceFirst(":\\d+$", "");
+        AtomicInteger current = active.computeIfAbsent(host, h -> new AtomicInteger());
+        peak.computeIfAbsent(host, h -> new AtomicInteger()).accumulateAndGet(current.incrementAndGet(), Math::max);
+        try {
+            if (latencyMillis > 0) {
+                Thread.sleep(latencyMillis);
+            }
+            exchange.getResponseHeaders().set("Content-Type", "image/jpeg");
+            exchange.sendResponseHeaders(200, image.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(image);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exchange.sendResponseHeaders(503, -1);
+        } finally {
+            current.decrementAndGet();
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,492 @@
+import javax.swing.ImageIcon;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Loads feed thumbnails through the {@link ImageCache}, downloading and decoding each URL
+ * at most once at a time: concurrent requests for a URL that is already loading attach to
+ * the pending load instead of starting another one.
+ *
+ * Loading runs in two stages. Downloads run on virtual threads, so a slow server parks a
+ * virtual thread rather than holding a platform thread. At most {@code maxFetches} run at
+ * once, and at most {@code maxFetchesPerHost} against any one host; a download whose host
+ * is at its limit waits aside without holding a worker, so one busy host cannot keep the
+ * workers from images on other hosts. Decoding and scaling
+ * are CPU-bound and run on a pool sized to the processors, behind a queue of at most
+ * {@code decodeQueueCapacity} downloaded images. When scrolling outruns the decoders, the
+ * oldest queued image is dropped; its requests fail with {@link LoadDroppedException}.
+ * The dropped image's bytes are kept for a while, so asking for it again repeats only
+ * the decode, not the download; requesters should wait {@value #DROPPED_RETRY_DELAY_MS}ms
+ * before asking, so that a sustained overload does not spin.
+ *
+ * While the decoders are busy, a downloaded image is first decoded coarsely into a blurry
+ * placeholder of the thumbnail's size, offered through {@link ImageRequest#preview()}.
+ * Its full decode goes back in the queue, where previews come first, so every visible
+ * photo shows something early. With an idle decoder the preview would only delay the full
+ * image, so it is skipped.
+ *
+ * Pending downloads wait in a priority queue ordered by each request's distance from the
+ * viewport, so what is on screen is served first. A load whose requests have all been
+ * cancelled before it started is dropped from the queue; one that is already running
+ * is left to finish and fill the cache.
+ */
+class ImageLoader {
+    static final int THUMBNAIL_WIDTH = 600;
+    static final int PREVIEW_WIDTH = 100;
+    /** Priority for requests whose position is not known yet; served after anything visible. */
+    static final int PRIORITY_UNKNOWN = Integer.MAX_VALUE / 2;
+    static final int DEFAULT_MAX_FETCHES = 32;
+    static final int DEFAULT_MAX_FETCHES_PER_HOST = 6; // As browsers allow per HTTP/1.1 host
+    /** How long a requester whose load was dropped waits before asking again. */
+    static final int DROPPED_RETRY_DELAY_MS = 250;
+    private static final int TIMEOUT_MILLIS = 15_000;
+
+    private final ImageCache cache;
+    private final ThreadPoolExecutor fetchExecutor;
+    private final ThreadPoolExecutor decodeExecutor;
+    private final int maxFetchesPerHost;
+    private final int decodeQueueCapacity;
+    private final AtomicInteger sequence = new AtomicInteger();
+    private final LongAdder dropped = new LongAdder();
+
+    // Guarded by this
+    private final Map<String, LoadTask> inFlight = new HashMap<>();
+    private final Map<String, HostSlots> hosts = new HashMap<>();
+    private final Map<String, byte[]> droppedBytes; // Encoded images shed by the decode queue, by URL
+    private int parkedCount = 0;
+
+    /** Default limits, with a decoder per processor. */
+    ImageLoader(ImageCache cache) {
+        this(cache, DEFAULT_MAX_FETCHES, DEFAULT_MAX_FETCHES_PER_HOST, Runtime.getRuntime().availableProcessors(),
+                Math.max(16, 4 * Runtime.getRuntime().availableProcessors())); // About two screens of photos
+    }
+
+    ImageLoader(ImageCache cache, int maxFetches, int maxFetchesPerHost, int decodeThreads, int decodeQueueCapacity) {
+        this.cache = cache;
+        this.maxFetchesPerHost = maxFetchesPerHost;
+        // A fixed set of virtual workers keeps the priority order and caps concurrent downloads
+        this.fetchExecutor = new ThreadPoolExecutor(maxFetches, maxFetches, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(), Thread.ofVirtual().name("image-fetch-", 1).factory());
+        // With every worker started, execute() always goes through the priority queue
+        fetchExecutor.prestartAllCoreThreads();
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.decodeQueueCapacity = decodeQueueCapacity;
+        // Room for one more queue's worth of shed images, the newest kept
+        this.droppedBytes = new LinkedHashMap<String, byte[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                return size() > decodeQueueCapacity;
+            }
+        };
+        this.decodeExecutor = new ThreadPoolExecutor(decodeThreads, decodeThreads, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "image-decode-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        decodeExecutor.prestartAllCoreThreads();
+    }
+
+    /** Memory-cache lookup only; safe on the EDT. */
+    ImageIcon getCached(String url) {
+        return cache.get(url);
+    }
+
+    /**
+     * Requests the thumbnail of the URL. Smaller priorities are served first; use the
+     * distance in pixels from the viewport, 0 meaning visible.
+     */
+    synchronized ImageRequest load(String url, int priority) {
+        ImageRequest request = new ImageRequest(priority);
+        LoadTask task = inFlight.get(url);
+        if (task == null) {
+            task = new LoadTask(url, sequence.incrementAndGet());
+            task.waiters.add(request);
+            task.priority = priority;
+            inFlight.put(url, task);
+            fetchExecutor.execute(task);
+        } else {
+            task.waiters.add(request);
+            reprioritize(task);
+        }
+        request.task = task;
+        return request;
+    }
+
+    /** Number of distinct URLs currently queued or loading. */
+    synchronized int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    /** Downloads waiting for a fetch worker or for a free slot on their host. */
+    synchronized int getQueuedCount() {
+        return fetchExecutor.getQueue().size() + parkedCount;
+    }
+
+    /** Downloaded images waiting for a decoder. */
+    int getDecodeQueuedCount() {
+        return decodeExecutor.getQueue().size();
+    }
+
+    /** Loads dropped so far because the decode queue was full. */
+    long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    void shutdown() {
+        fetchExecutor.shutdownNow();
+        decodeExecutor.shutdownNow();
+    }
+
+    private void reprioritize(LoadTask task) {
+        int best = PRIORITY_UNKNOWN;
+        for (ImageRequest waiter : task.waiters) {
+            best = Math.min(best, waiter.priority);
+        }
+        if (best == task.priority) {
+            return;
+        }
+        // Queue order is fixed at insertion, so a queued task is re-inserted with its new priority
+        if (!task.started && fetchExecutor.remove(task)) {
+            task.priority = best;
+            fetchExecutor.execute(task);
+        } else if (!task.started && unpark(task)) {
+            task.priority = best;
+            park(task);
+        } else {
+            task.priority = best;
+        }
+    }
+
+    private synchronized void detach(ImageRequest request) {
+        LoadTask task = request.task;
+        if (!task.waiters.remove(request)) {
+            return;
+        }
+        if (task.waiters.isEmpty() && !task.started) {
+            fetchExecutor.remove(task);
+            unpark(task);
+            inFlight.remove(task.url, task);
+        } else {
+            reprioritize(task);
+        }
+    }
+
+    private synchronized void setPriority(ImageRequest request, int priority) {
+        if (request.priority == priority) {
+            return;
+        }
+        request.priority = priority;
+        if (request.task.waiters.contains(request)) {
+            reprioritize(request.task);
+        }
+    }
+
+    private void run(LoadTask task) {
+        synchronized (this) {
+            if (task.waiters.isEmpty() || inFlight.get(task.url) != task) {
+                return; // every requester went away while it was queued
+            }
+        }
+        try {
+            // A thumbnail persisted by an earlier run avoids the download, and the host's limit, entirely
+            ImageIcon icon = cache.getOrLoadFromDisk(task.url);
+            if (icon != null) {
+                complete(task, icon, null);
+                return;
+            }
+        } catch (Throwable t) {
+            complete(task, null, t);
+            return;
+        }
+        byte[] retained;
+        synchronized (this) {
+            if (task.waiters.isEmpty() || inFlight.get(task.url) != task) {
+                return;
+            }
+            retained = droppedBytes.remove(task.url);
+            if (retained == null) {
+                HostSlots slots = hosts.computeIfAbsent(task.host, host -> new HostSlots());
+                if (slots.active >= maxFetchesPerHost) {
+                    park(task); // Requeued when one of the host's downloads finishes
+                    return;
+                }
+                slots.active++;
+            }
+            task.started = true;
+        }
+        if (retained != null) {
+            // Downloaded before the decode queue shed it; only the decode is repeated
+            try {
+                submitDecode(new DecodeTask(task, retained, !decodeExecutor.getQueue().isEmpty()));
+            } catch (Throwable t) {
+                complete(task, null, t);
+            }
+            return;
+        }
+        try {
+            byte[] encoded = download(task.url);
+            boolean decodersBusy = !decodeExecutor.getQueue().isEmpty();
+            submitDecode(new DecodeTask(task, encoded, decodersBusy));
+        } catch (Throwable t) {
+            complete(task, null, t);
+        } finally {
+            releaseHost(task);
+        }
+    }
+
+    private byte[] download(String url) throws IOException {
+        long start = System.nanoTime();
+        try {
+            URLConnection connection = URI.create(url).toURL().openConnection();
+            connection.setConnectTimeout(TIMEOUT_MILLIS);
+            connection.setReadTimeout(TIMEOUT_MILLIS);
+            try (InputStream in = connection.getInputStream()) {
+                return in.readAllBytes();
+            }
+        } finally {
+            FeedMetrics.record(FeedMetrics.Stage.IMAGE_FETCH, start);
+        }
+    }
+
+    /** Frees the task's host slot and sends the host's nearest waiting download back to the workers. */
+    private synchronized void releaseHost(LoadTask task) {
+        HostSlots slots = hosts.get(task.host);
+        slots.active--;
+        LoadTask next = slots.parked.poll();
+        if (next != null) {
+            parkedCount--;
+            if (!fetchExecutor.isShutdown()) {
+                fetchExecutor.execute(next);
+            }
+        }
+    }
+
+    private void park(LoadTask task) {
+        hosts.get(task.host).parked.add(task);
+        parkedCount++;
+    }
+
+    private boolean unpark(LoadTask task) {
+        HostSlots slots = hosts.get(task.host);
+        if (slots != null && slots.parked.remove(task)) {
+            parkedCount--;
+            return true;
+        }
+        return false;
+    }
+
+    private void decode(DecodeTask decode) {
+        LoadTask task = decode.task;
+        if (decode.preview) {
+            decodePreview(decode);
+            // Takes over the preview's place in the queue, so the bound still counts images
+            decodeExecutor.execute(new DecodeTask(task, decode.encoded, false));
+            return;
+        }
+        try {
+            BufferedImage thumbnail = Thumbnailer.decodeThumbnail(new ByteArrayInputStream(decode.encoded), THUMBNAIL_WIDTH);
+            if (thumbnail == null) {
+                throw new IOException("Unsupported image format: " + task.url);
+            }
+            cache.putThumbnail(task.url, thumbnail);
+            complete(task, new ImageIcon(thumbnail), null);
+        } catch (Throwable t) {
+            complete(task, null, t);
+        }
+    }
+
+    private void decodePreview(DecodeTask decode) {
+        synchronized (this) {
+            if (decode.task.waiters.isEmpty()) {
+                return; // Only filling the cache; nobody to show a preview to
+            }
+        }
+        BufferedImage preview;
+        try {
+            preview = Thumbnailer.decodePreview(new ByteArrayInputStream(decode.encoded), PREVIEW_WIDTH, THUMBNAIL_WIDTH);
+        } catch (IOException e) {
+            return; // The full decode reports the failure
+        }
+        if (preview == null) {
+            return;
+        }
+        List<ImageRequest> waiters;
+        synchronized (this) {
+            waiters = new ArrayList<>(decode.task.waiters);
+        }
+        ImageIcon icon = new ImageIcon(preview);
+        for (ImageRequest waiter : waiters) {
+            waiter.preview.complete(icon);
+        }
+    }
+
+    private void complete(LoadTask task, ImageIcon icon, Throwable failure) {
+        List<ImageRequest> waiters;
+        synchronized (this) {
+            inFlight.remove(task.url, task);
+            waiters = new ArrayList<>(task.waiters);
+            task.waiters.clear();
+        }
+        for (ImageRequest waiter : waiters) {
+            waiter.preview.complete(null);
+            if (failure == null) {
+                waiter.future.complete(icon);
+            } else {
+                waiter.future.completeExceptionally(failure);
+            }
+        }
+    }
+
+    /** Queues a downloaded image, first failing the oldest queued one if the queue is full. */
+    private void submitDecode(DecodeTask decode) {
+        DecodeTask oldest = null;
+        synchronized (decodeExecutor) {
+            if (decodeExecutor.getQueue().size() >= decodeQueueCapacity) {
+                for (Runnable queued : decodeExecutor.getQueue()) {
+                    DecodeTask candidate = (DecodeTask) queued;
+                    if (oldest == null || candidate.task.seq < oldest.task.seq) {
+                        oldest = candidate;
+                    }
+                }
+                if (oldest != null && !decodeExecutor.remove(oldest)) {
+                    oldest = null; // A decoder took it meanwhile
+                }
+            }
+            decodeExecutor.execute(decode);
+        }
+        if (oldest != null) {
+            dropped.increment();
+            synchronized (this) {
+                droppedBytes.put(oldest.task.url, oldest.encoded);
+            }
+            complete(oldest.task, null, new LoadDroppedException(oldest.task.url));
+        }
+    }
+
+    private static String hostOf(String url) {
+        try {
+            return String.valueOf(URI.create(url).getHost());
+        } catch (IllegalArgumentException e) {
+            return ""; // Fails in download() and is reported there
+        }
+    }
+
+    /** A load given up because images were downloaded faster than they could be decoded. */
+    static final class LoadDroppedException extends IOException {
+        LoadDroppedException(String url) {
+            super("Dropped, decode queue full: " + url);
+        }
+    }
+
+    /** One requester's interest in a URL. */
+    final class ImageRequest {
+        private final CompletableFuture<ImageIcon> future = new CompletableFuture<>();
+        private final CompletableFuture<ImageIcon> preview = new CompletableFuture<>();
+        private int priority; // Guarded by ImageLoader.this
+        private LoadTask task;
+
+        private ImageRequest(int priority) {
+            this.priority = priority;
+        }
+
+        CompletableFuture<ImageIcon> future() {
+            return future;
+        }
+
+        /**
+         * Completes with a low-resolution placeholder of the thumbnail's size, or with null
+         * if there will be none; always before {@link #future()} completes.
+         */
+        CompletableFuture<ImageIcon> preview() {
+            return preview;
+        }
+
+        /** Moves this request closer to or further from the front of the queue. */
+        void setPriority(int priority) {
+            ImageLoader.this.setPriority(this, priority);
+        }
+
+        /** Detaches this requester; the load itself is dropped if nobody else waits for it. */
+        void cancel() {
+            detach(this);
+            preview.cancel(false);
+            future.cancel(false);
+        }
+    }
+
+    private final class DecodeTask implements Runnable, Comparable<DecodeTask> {
+        private final LoadTask task;
+        private final byte[] encoded;
+        private final boolean preview; // Preview pass first, then requeue for the full decode
+
+        DecodeTask(LoadTask task, byte[] encoded, boolean preview) {
+            this.task = task;
+            this.encoded = encoded;
+            this.preview = preview;
+        }
+
+        @Override
+        public void run() {
+            decode(this);
+        }
+
+        @Override
+        public int compareTo(DecodeTask other) {
+            // Previews first, then in the order the images were requested
+            if (preview != other.preview) {
+                return preview ? -1 : 1;
+            }
+            return Integer.compare(task.seq, other.task.seq);
+        }
+    }
+
+    /** Downloads running against one host, and those waiting for one of them to finish. Guarded by ImageLoader.this. */
+    private static final class HostSlots {
+        private final PriorityQueue<LoadTask> parked = new PriorityQueue<>();
+        private int active;
+    }
+
+    private final class LoadTask implements Runnable, Comparable<LoadTask> {
+        private final String url;
+        private final String host;
+        private final int seq;
+        private final List<ImageRequest> waiters = new ArrayList<>(2);
+        private int priority;
+        private boolean started;
+
+        LoadTask(String url, int seq) {
+            this.url = url;
+            this.host = hostOf(url);
+            this.seq = seq;
+        }
+
+        @Override
+        public void run() {
+            ImageLoader.this.run(this);
+        }
+
+        @Override
+        public int compareTo(LoadTask other) {
+            int byPriority = Integer.compare(priority, other.priority);
+            return byPriority != 0 ? byPriority : Integer.compare(seq, other.seq);
+        }
+    }
+}
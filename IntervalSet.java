@@ -0,0 +1,236 @@
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Mutable set of integer points kept as a coalesced union of closed intervals [start, end].
+ *
+ * Backed by a red-black tree from interval start to end, so every operation is O(log n),
+ * amortized for {@link #add} and {@link #remove} which may fold or split neighbours.
+ * Adding follows {@link MergeIntervals}: intervals that overlap or touch at an endpoint
+ * are coalesced ([1, 2] + [2, 3] = [1, 3]), while [1, 2] and [3, 4] stay separate.
+ * Removing is by points: removing [3, 5] from [1, 10] leaves [1, 2] and [6, 10].
+ */
+public final class IntervalSet implements Iterable<MergeIntervals.Interval> {
+    private final TreeMap<Integer, Integer> startToEnd = new TreeMap<>();
+
+    /** Adds [start, end], merging it with every interval it overlaps or touches. */
+    public void add(int start, int end) {
+        checkRange(start, end);
+        Map.Entry<Integer, Integer> before = startToEnd.floorEntry(start);
+        if (before != null && before.getValue() >= start) {
+            if (before.getValue() >= end) {
+                return; // already covered
+            }
+            start = before.getKey();
+        }
+        NavigableMap<Integer, Integer> swallowed = startToEnd.subMap(start, true, end, true);
+        if (!swallowed.isEmpty()) {
+            end = Math.max(end, swallowed.lastEntry().getValue());
+            swallowed.clear();
+        }
+        startToEnd.put(start, end);
+    }
+
+    /** Removes every point of [start, end], splitting intervals that straddle either bound. */
+    public void remove(int start, int end) {
+        checkRange(start, end);
+        Map.Entry<Integer, Integer> before = startToEnd.lowerEntry(start);
+        if (before != null && before.getValue() >= start) {
+            startToEnd.put(before.getKey(), start - 1);
+            if (before.getValue() > end) {
+                startToEnd.put(end + 1, before.getValue());
+                return;
+            }
+        }
+        NavigableMap<Integer, Integer> covered = startToEnd.subMap(start, true, end, true);
+        if (!covered.isEmpty()) {
+            int lastEnd = covered.lastEntry().getValue();
+            covered.clear();
+            if (lastEnd > end) {
+                startToEnd.put(end + 1, lastEnd);
+            }
+        }
+    }
+
+    public boolean contains(int point) {
+        Map.Entry<Integer, Integer> candidate = startToEnd.floorEntry(point);
+        return candidate != null && candidate.getValue() >= point;
+    }
+
+    /** True if any point of [start, end] is in the set. */
+    public boolean overlaps(int start, int end) {
+        checkRange(start, end);
+        Map.Entry<Integer, Integer> candidate = startToEnd.floorEntry(end);
+        return candidate != null && candidate.getValue() >= start;
+    }
+
+    /** Intervals of the set that intersect [from, to], in order, as stored (not clipped). */
+    public Iterator<MergeIntervals.Interval> iterator(int from, int to) {
+        checkRange(from, to);
+        Integer firstKey = startToEnd.floorKey(from);
+        if (firstKey == null || startToEnd.get(firstKey) < from) {
+            firstKey = from;
+        }
+        return toIntervals(startToEnd.subMap(firstKey, true, to, true).entrySet().iterator());
+    }
+
+    @Override
+    public Iterator<MergeIntervals.Interval> iterator() {
+        return toIntervals(startToEnd.entrySet().iterator());
+    }
+
+    /** Number of disjoint intervals. */
+    public int size() {
+        return startToEnd.size();
+    }
+
+    public boolean isEmpty() {
+        return startToEnd.isEmpty();
+    }
+
+    public void clear() {
+        startToEnd.clear();
+    }
+
+    public List<MergeIntervals.Interval> toList() {
+        List<MergeIntervals.Interval> out = new ArrayList<>(startToEnd.size());
+        iterator().forEachRemaining(out::add);
+        return out;
+    }
+
+    @Override
+    public String toString() {
+        return toList().toString();
+    }
+
+    private static Iterator<MergeIntervals.Interval> toIntervals(Iterator<Map.Entry<Integer, Integer>> entries) {
+        return new Iterator<MergeIntervals.Interval>() {
+            @Override
+            public boolean hasNext() {
+                return entries.hasNext();
+            }
+
+            @Override
+            public MergeIntervals.Interval next() {
+                Map.Entry<Integer, Integer> entry = entries.next();
+                return new MergeIntervals.Interval(entry.getKey(), entry.getValue());
+            }
+        };
+    }
+
+    private static void checkRange(int start, int end) {
+        if (end < start) {
+            throw new IllegalArgumentException("Interval end must be >= start: [" + start + ", " + end + "]");
+        }
+    }
+
+    public static void main(String[] args) {
+        IntervalSet set = new IntervalSet();
+        set.add(1, 2);
+        set.add(2, 3);
+        set.add(5, 6);
+        set.add(7, 10);
+        System.out.println("Added: " + set);
+        set.remove(8, 8);
+        System.out.println("Removed [8, 8]: " + set);
+
+        int trials = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        crossCheck(trials, new Random(42));
+        System.out.println("Cross-check against BitSet passed (" + trials + " trials)");
+    }
+
+    /**
+     * Replays random adds and removes on a set and on a BitSet of the same points. After each
+     * step the stored intervals must be ordered, neither overlapping nor sharing an endpoint,
+     * and cover exactly the model's bits; contains, overlaps and iterator(from, to) are then
+     * queried at random against the model.
+     */
+    private static void crossCheck(int trials, Random random) {
+        IntervalSet edges = new IntervalSet();
+        edges.add(Integer.MIN_VALUE, Integer.MAX_VALUE);
+        edges.remove(Integer.MAX_VALUE, Integer.MAX_VALUE);
+        edges.remove(Integer.MIN_VALUE, Integer.MIN_VALUE);
+        checkCase(edges, "[[" + (Integer.MIN_VALUE + 1) + ", " + (Integer.MAX_VALUE - 1) + "]]");
+        edges.add(Integer.MAX_VALUE, Integer.MAX_VALUE);
+        edges.remove(0, Integer.MAX_VALUE);
+        checkCase(edges, "[[" + (Integer.MIN_VALUE + 1) + ", -1]]");
+
+        int domain = 80;
+        for (int trial = 0; trial < trials; trial++) {
+            IntervalSet set = new IntervalSet();
+            BitSet model = new BitSet(domain);
+            List<String> ops = new ArrayList<>();
+            int steps = 1 + random.nextInt(16);
+            for (int step = 0; step < steps; step++) {
+                int start = random.nextInt(domain);
+                // One in four is a single point
+                int end = random.nextInt(4) == 0 ? start : Math.min(domain - 1, start + 1 + random.nextInt(12));
+                if (random.nextInt(3) == 0) {
+                    set.remove(start, end);
+                    model.clear(start, end + 1);
+                    ops.add("-[" + start + ", " + end + "]");
+                } else {
+                    set.add(start, end);
+                    model.set(start, end + 1);
+                    ops.add("+[" + start + ", " + end + "]");
+                }
+                checkAgainst(set, model, domain, random, ops);
+            }
+        }
+    }
+
+    private static void checkAgainst(IntervalSet set, BitSet model, int domain, Random random, List<String> ops) {
+        BitSet covered = new BitSet(domain);
+        long previousEnd = Long.MIN_VALUE;
+        for (MergeIntervals.Interval interval : set) {
+            if (interval.start <= previousEnd) {
+                throw new AssertionError(ops + ": intervals out of order or not coalesced: " + set);
+            }
+            covered.set(interval.start, interval.end + 1);
+            previousEnd = interval.end;
+        }
+        if (!covered.equals(model)) {
+            throw new AssertionError(ops + ": expected points " + model + ", got " + set);
+        }
+        if (set.size() != set.toList().size() || set.isEmpty() != model.isEmpty()) {
+            throw new AssertionError(ops + ": size " + set.size() + " disagrees with " + set);
+        }
+        for (int query = 0; query < 8; query++) {
+            int point = random.nextInt(domain + 2) - 1;
+            if (set.contains(point) != (point >= 0 && model.get(point))) {
+                throw new AssertionError(ops + ": contains(" + point + ") wrong for " + set);
+            }
+            int from = random.nextInt(domain + 2) - 1;
+            int to = Math.min(domain, from + random.nextInt(16));
+            int next = model.nextSetBit(Math.max(0, from));
+            boolean expectedOverlap = next >= 0 && next <= to;
+            if (set.overlaps(from, to) != expectedOverlap) {
+                throw new AssertionError(ops + ": overlaps(" + from + ", " + to + ") wrong for " + set);
+            }
+            List<MergeIntervals.Interval> expected = new ArrayList<>();
+            for (MergeIntervals.Interval interval : set) {
+                if (interval.start <= to && interval.end >= from) {
+                    expected.add(interval);
+                }
+            }
+            List<MergeIntervals.Interval> actual = new ArrayList<>();
+            set.iterator(from, to).forEachRemaining(actual::add);
+            if (!expected.toString().equals(actual.toString())) {
+                throw new AssertionError(ops + ": iterator(" + from + ", " + to + ") on " + set
+                        + ": expected " + expected + ", got " + actual);
+            }
+        }
+    }
+
+    private static void checkCase(IntervalSet set, String expected) {
+        if (!set.toString().equals(expected)) {
+            throw new AssertionError("expected " + expected + ", got " + set);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+
+/**
+ * Subscribes to a stream of new posts and hands them to the EDT in batches.
+ *
+ * Posts arriving from the publisher's thread are buffered, and a one-shot Swing timer
+ * delivers everything buffered at most once per {@value #FRAME_MILLIS}ms, so a burst of
+ * thousands of posts a second becomes a few dozen UI updates instead of one per post.
+ * Demand is bounded: at most {@value #MAX_PENDING} posts are requested ahead of the
+ * batches applied, so a publisher outrunning the UI waits instead of filling the heap.
+ */
+class LiveFeedIngestor implements Flow.Subscriber<Post> {
+    static final int FRAME_MILLIS = 33; // At most ~30 batches a second
+    private static final int MAX_PENDING = 4096;
+
+    private final Consumer<List<Post>> onBatch;
+    private final Timer flushTimer;
+
+    // Guarded by this
+    private Flow.Subscription subscription;
+    private List<Post> pending = new ArrayList<>();
+    private boolean flushScheduled = false;
+    private boolean closed = false;
+    private long lastFlushNanos = 0;
+
+    /** {@code onBatch} runs on the EDT with the posts received since the last batch, in arrival order. */
+    LiveFeedIngestor(Consumer<List<Post>> onBatch) {
+        this.onBatch = onBatch;
+        this.flushTimer = new Timer(FRAME_MILLIS, e -> flush());
+        flushTimer.setRepeats(false);
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        synchronized (this) {
+            if (this.subscription != null || closed) {
+                subscription.cancel();
+                return;
+            }
+            this.subscription = subscription;
+        }
+        subscription.request(MAX_PENDING);
+    }
+
+    @Override
+    public void onNext(Post post) {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            pending.add(post);
+        }
+        scheduleFlush();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        // Keep what arrived; the feed simply stops updating live
+        scheduleFlush();
+    }
+
+    @Override
+    public void onComplete() {
+        scheduleFlush();
+    }
+
+    /** Cancels the subscription; posts not yet delivered are dropped. */
+    synchronized void close() {
+        closed = true;
+        pending = new ArrayList<>();
+        if (subscription != null) {
+            subscription.cancel();
+        }
+        SwingUtilities.invokeLater(flushTimer::stop);
+    }
+
+    private void scheduleFlush() {
+        int delayMillis;
+        synchronized (this) {
+            if (flushScheduled || closed) {
+                return;
+            }
+            flushScheduled = true;
+            long sinceLast = (System.nanoTime() - lastFlushNanos) / 1_000_000;
+            delayMillis = (int) Math.max(0, Math.min(FRAME_MILLIS, FRAME_MILLIS - sinceLast));
+        }
+        SwingUtilities.invokeLater(() -> {
+            flushTimer.setInitialDelay(delayMillis);
+            flushTimer.restart();
+        });
+    }
+
+    private void flush() {
+        List<Post> batch;
+        Flow.Subscription current;
+        synchronized (this) {
+            flushScheduled = false;
+            lastFlushNanos = System.nanoTime();
+            if (closed || pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new ArrayList<>(batch.size());
+            current = subscription;
+        }
+        onBatch.accept(batch);
+        current.request(batch.size());
+    }
+}
@@ -0,0 +1,86 @@
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulated live feed: publishes new posts at a steady rate, and in bursts on request.
+ *
+ * Ids continue upwards from {@code firstId}. Like posts relayed by several servers, a post
+ * is stamped up to {@value #MAX_SKEW_MILLIS}ms before it is published, so posts arrive
+ * slightly out of feed order. Publishing blocks while a subscriber has no demand left,
+ * which is how a slow consumer holds the source back.
+ */
+class LivePostSource implements Flow.Publisher<Post>, AutoCloseable {
+    private static final int MAX_SKEW_MILLIS = 2000;
+    private static final int AUTHORS = 50;
+
+    private final SubmissionPublisher<Post> publisher;
+    private final ExecutorService deliveryExecutor;
+    private final ScheduledExecutorService ticker;
+    private final Random random = new Random(); // Used by the ticker thread, or by burst callers
+    private long nextId;
+
+    /** Starts publishing {@code postsPerSecond} posts, or none if it is 0 and only bursts are wanted. */
+    LivePostSource(long firstId, int postsPerSecond) {
+        this.nextId = firstId;
+        this.deliveryExecutor = Executors.newSingleThreadExecutor(daemon("feed-live-delivery"));
+        this.publisher = new SubmissionPublisher<>(deliveryExecutor, Flow.defaultBufferSize());
+        this.ticker = Executors.newSingleThreadScheduledExecutor(daemon("feed-live-source"));
+        if (postsPerSecond > 0) {
+            long periodMicros = Math.max(1, 1_000_000L / postsPerSecond);
+            ticker.scheduleAtFixedRate(() -> publish(1), periodMicros, periodMicros, TimeUnit.MICROSECONDS);
+        }
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super Post> subscriber) {
+        publisher.subscribe(subscriber);
+    }
+
+    /** Publishes {@code count} posts back to back from the calling thread. */
+    void burst(int count) {
+        publish(count);
+    }
+
+    @Override
+    public void close() {
+        ticker.shutdownNow();
+        publisher.close();
+        deliveryExecutor.shutdown();
+    }
+
+    private synchronized void publish(int count) {
+        for (int i = 0; i < count && !publisher.isClosed(); i++) {
+            publisher.submit(generatePost(nextId++));
+        }
+    }
+
+    private Post generatePost(long id) {
+        String author = "live" + random.nextInt(AUTHORS);
+        LocalDateTime createdAt = LocalDateTime.now().minusNanos(random.nextInt(MAX_SKEW_MILLIS) * 1_000_000L);
+        switch (random.nextInt(3)) {
+            case 0: {
+                String img = "https://picsum.photos/id/" + (100 + id % 100) + "/800/500";
+                return Post.photo(id, author, createdAt, img, "Live photo #" + id);
+            }
+            case 1:
+                return Post.video(id, author, createdAt, "https://vimeo.com/76979871", "Live video #" + id);
+            default:
+                return Post.text(id, author, createdAt, "Live post #" + id + " — just in");
+        }
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
@@ -0,0 +1,429 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * {@link MergeIntervals} for long coordinates, such as epoch-millisecond or epoch-nanosecond
+ * timelines that overflow int.
+ *
+ * Specialized on primitive longs rather than generic over boxed Comparable endpoints. The
+ * primitive API takes parallel start and end arrays that the caller owns.
+ *
+ * Unlike the int version, whether two neighbouring intervals coalesce is configurable
+ * through {@link TouchPolicy}. The default, {@link TouchPolicy#SHARED_ENDPOINT}, is the
+ * rule MergeIntervals uses.
+ */
+public final class LongMergeIntervals {
+
+    /** When two intervals whose ranges do not strictly overlap are still merged. */
+    public enum TouchPolicy {
+        /** Half-open view: [1, 2] and [2, 3] stay apart, only real overlap merges. */
+        OVERLAPPING,
+        /** [1, 2] and [2, 3] merge; [1, 2] and [3, 4] stay apart. As in MergeIntervals. */
+        SHARED_ENDPOINT,
+        /** Discrete domains: [1, 2] and [3, 4] merge as well, since no point lies between them. */
+        ADJACENT;
+
+        /**
+         * True if the next interval joins the run [start, end] before it, given intervals in
+         * (start, end) order. One containing the other always joins, so under OVERLAPPING a
+         * zero-length interval inside a run, or one equal to it, is folded in as well.
+         */
+        boolean joins(long start, long end, long nextStart, long nextEnd) {
+            if (this == OVERLAPPING) {
+                return nextStart < end || nextEnd <= end || nextStart == start;
+            }
+            // Containment already implies nextStart <= end
+            return joins(end, nextStart);
+        }
+
+        /** True if an interval starting at {@code nextStart} joins one ending at {@code end}. */
+        boolean joins(long end, long nextStart) {
+            switch (this) {
+                case OVERLAPPING:
+                    return nextStart < end;
+                case SHARED_ENDPOINT:
+                    return nextStart <= end;
+                default:
+                    // nextStart - 1 cannot overflow once nextStart > end
+                    return nextStart <= end || nextStart - 1 == end;
+            }
+        }
+    }
+
+    /** Immutable interval [start, end]. */
+    public static final class LongInterval {
+        public final long start;
+        public final long end;
+
+        public LongInterval(long start, long end) {
+            if (end < start) {
+                throw new IllegalArgumentException("Interval end must be >= start: [" + start + ", " + end + "]");
+            }
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + start + ", " + end + "]";
+        }
+    }
+
+    private LongMergeIntervals() {
+    }
+
+    public static List<LongInterval> mergeTwoSortedLists(List<LongInterval> listA, List<LongInterval> listB) {
+        return mergeTwoSortedLists(listA, listB, TouchPolicy.SHARED_ENDPOINT);
+    }
+
+    /**
+     * Merges two sorted, individually-disjoint interval lists into a coalesced union.
+     * Time: O(n + m). Space: O(n + m) for the output.
+     */
+    public static List<LongInterval> mergeTwoSortedLists(List<LongInterval> listA, List<LongInterval> listB,
+                                                         TouchPolicy policy) {
+        if (listA == null || listB == null || policy == null) {
+            throw new IllegalArgumentException("Inputs must not be null");
+        }
+
+        List<LongInterval> result = new ArrayList<>(listA.size() + listB.size());
+
+        int indexA = 0;
+        int indexB = 0;
+        LongInterval pending = null; // The interval being built/extended
+
+        while (indexA < listA.size() || indexB < listB.size()) {
+            LongInterval next;
+            if (indexB >= listB.size() || (indexA < listA.size() && precedes(listA.get(indexA), listB.get(indexB)))) {
+                next = listA.get(indexA++);
+            } else {
+                next = listB.get(indexB++);
+            }
+
+            if (pending == null) {
+                pending = next;
+            } else if (policy.joins(pending.start, pending.end, next.start, next.end)) {
+                if (next.end > pending.end) {
+                    pending = new LongInterval(pending.start, next.end);
+                }
+            } else {
+                result.add(pending);
+                pending = next;
+            }
+        }
+
+        if (pending != null) {
+            result.add(pending);
+        }
+
+        return result;
+    }
+
+    public static List<LongInterval> mergeTwoArbitraryLists(List<LongInterval> listA, List<LongInterval> listB) {
+        return mergeTwoArbitraryLists(listA, listB, TouchPolicy.SHARED_ENDPOINT);
+    }
+
+    /**
+     * Merges two arbitrary interval lists (unsorted and may overlap internally).
+     * Time: O((n + m) log(n + m)).
+     */
+    public static List<LongInterval> mergeTwoArbitraryLists(List<LongInterval> listA, List<LongInterval> listB,
+                                                            TouchPolicy policy) {
+        if (listA == null || listB == null || policy == null) {
+            throw new IllegalArgumentException("Inputs must not be null");
+        }
+        if (listA.isEmpty() && listB.isEmpty()) {
+            return Collections.emptyList();
+        }
+        int length = listA.size() + listB.size();
+        long[] starts = new long[length];
+        long[] ends = new long[length];
+        int index = 0;
+        for (LongInterval interval : listA) {
+            starts[index] = interval.start;
+            ends[index++] = interval.end;
+        }
+        for (LongInterval interval : listB) {
+            starts[index] = interval.start;
+            ends[index++] = interval.end;
+        }
+        int count = mergeArbitraryInPlace(starts, ends, length, policy);
+        List<LongInterval> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(new LongInterval(starts[i], ends[i]));
+        }
+        return result;
+    }
+
+    // ---- Primitive API -------------------------------------------------------------------
+
+    /**
+     * Primitive form of {@link #mergeTwoSortedLists}: interval i of A is
+     * [startsA[i], endsA[i]], likewise for B. The output arrays need room for
+     * {@code lengthA + lengthB} intervals. Returns the number of intervals written.
+     * Time: O(n + m); no allocation.
+     */
+    public static int mergeSorted(long[] startsA, long[] endsA, int lengthA,
+                                  long[] startsB, long[] endsB, int lengthB,
+                                  long[] outStarts, long[] outEnds, TouchPolicy policy) {
+        if (outStarts.length < lengthA + lengthB || outEnds.length < lengthA + lengthB) {
+            throw new IllegalArgumentException("Output buffer too small: "
+                    + Math.min(outStarts.length, outEnds.length) + " < " + (lengthA + lengthB));
+        }
+        if (lengthA + lengthB == 0) {
+            return 0;
+        }
+        int indexA = 0;
+        int indexB = 0;
+        int count = 0;
+        long pendingStart = 0;
+        long pendingEnd = 0;
+        boolean hasPending = false;
+
+        while (indexA < lengthA || indexB < lengthB) {
+            long start;
+            long end;
+            if (indexB >= lengthB || (indexA < lengthA && (startsA[indexA] < startsB[indexB]
+                    || (startsA[indexA] == startsB[indexB] && endsA[indexA] <= endsB[indexB])))) {
+                start = startsA[indexA];
+                end = endsA[indexA++];
+            } else {
+                start = startsB[indexB];
+                end = endsB[indexB++];
+            }
+            if (!hasPending) {
+                pendingStart = start;
+                pendingEnd = end;
+                hasPending = true;
+            } else if (policy.joins(pendingStart, pendingEnd, start, end)) {
+                pendingEnd = Math.max(pendingEnd, end);
+            } else {
+                outStarts[count] = pendingStart;
+                outEnds[count++] = pendingEnd;
+                pendingStart = start;
+                pendingEnd = end;
+            }
+        }
+        outStarts[count] = pendingStart;
+        outEnds[count++] = pendingEnd;
+        return count;
+    }
+
+    /**
+     * Primitive form of {@link #mergeTwoArbitraryLists}: coalesces the first {@code length}
+     * intervals [starts[i], ends[i]] in place and returns how many are left at the front.
+     *
+     * The starts and ends are sorted independently, so no start/end pairing is kept while
+     * sorting. The union does not depend on it: after sorting, the run that began at
+     * starts[r] can only close at ends[i] when starts[i + 1] does not join ends[i], since
+     * every interval starting up to starts[i] ends by then. That argument fails for
+     * zero-length intervals under OVERLAPPING, which join by containment rather than by
+     * their endpoints, so those inputs are sorted as (start, end) pairs instead.
+     * Time: O(n log n); no allocation.
+     */
+    public static int mergeArbitraryInPlace(long[] starts, long[] ends, int length, TouchPolicy policy) {
+        if (starts.length < length || ends.length < length) {
+            throw new IllegalArgumentException("Arrays shorter than length " + length);
+        }
+        boolean hasEmpty = false;
+        for (int i = 0; i < length; i++) {
+            if (ends[i] < starts[i]) {
+                throw new IllegalArgumentException("Interval end must be >= start: [" + starts[i] + ", " + ends[i] + "]");
+            }
+            hasEmpty |= ends[i] == starts[i];
+        }
+        if (length == 0) {
+            return 0;
+        }
+        if (hasEmpty && policy == TouchPolicy.OVERLAPPING) {
+            return mergePairsInPlace(starts, ends, length, policy);
+        }
+        Arrays.sort(starts, 0, length);
+        Arrays.sort(ends, 0, length);
+        int count = 0;
+        long runStart = starts[0];
+        for (int i = 0; i < length - 1; i++) {
+            if (!policy.joins(ends[i], starts[i + 1])) {
+                // count <= i, so the slots written never hold unread values
+                starts[count] = runStart;
+                ends[count++] = ends[i];
+                runStart = starts[i + 1];
+            }
+        }
+        starts[count] = runStart;
+        ends[count++] = ends[length - 1];
+        return count;
+    }
+
+    private static boolean precedes(LongInterval a, LongInterval b) {
+        return a.start < b.start || (a.start == b.start && a.end <= b.end);
+    }
+
+    /** Sorts the intervals as (start, end) pairs, then coalesces runs in one sweep. */
+    private static int mergePairsInPlace(long[] starts, long[] ends, int length, TouchPolicy policy) {
+        sortPairs(starts, ends, length);
+        int count = 0;
+        long runStart = starts[0];
+        long runEnd = ends[0];
+        for (int i = 1; i < length; i++) {
+            if (policy.joins(runStart, runEnd, starts[i], ends[i])) {
+                runEnd = Math.max(runEnd, ends[i]);
+            } else {
+                // count < i, so the slots written never hold unread values
+                starts[count] = runStart;
+                ends[count++] = runEnd;
+                runStart = starts[i];
+                runEnd = ends[i];
+            }
+        }
+        starts[count] = runStart;
+        ends[count++] = runEnd;
+        return count;
+    }
+
+    /** Heapsort of the parallel arrays by (start, end): in place, no allocation. */
+    private static void sortPairs(long[] starts, long[] ends, int length) {
+        for (int i = length / 2 - 1; i >= 0; i--) {
+            siftDown(starts, ends, i, length);
+        }
+        for (int last = length - 1; last > 0; last--) {
+            swap(starts, ends, 0, last);
+            siftDown(starts, ends, 0, last);
+        }
+    }
+
+    private static void siftDown(long[] starts, long[] ends, int index, int size) {
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                return;
+            }
+            if (child + 1 < size && pairLess(starts, ends, child, child + 1)) {
+                child++;
+            }
+            if (!pairLess(starts, ends, index, child)) {
+                return;
+            }
+            swap(starts, ends, index, child);
+            index = child;
+        }
+    }
+
+    private static boolean pairLess(long[] starts, long[] ends, int a, int b) {
+        return starts[a] < starts[b] || (starts[a] == starts[b] && ends[a] < ends[b]);
+    }
+
+    private static void swap(long[] starts, long[] ends, int a, int b) {
+        long start = starts[a];
+        starts[a] = starts[b];
+        starts[b] = start;
+        long end = ends[a];
+        ends[a] = ends[b];
+        ends[b] = end;
+    }
+
+    // Demo plus a randomized cross-check against the int implementation
+    public static void main(String[] args) {
+        List<LongInterval> a = Arrays.asList(
+                new LongInterval(1, 2),
+                new LongInterval(5, 7),
+                new LongInterval(10, 13)
+        );
+        List<LongInterval> b = Arrays.asList(
+                new LongInterval(3, 4),
+                new LongInterval(8, 9),
+                new LongInterval(13, 15)
+        );
+        for (TouchPolicy policy : TouchPolicy.values()) {
+            System.out.println("Merged (" + policy + "): " + mergeTwoSortedLists(a, b, policy));
+        }
+
+        long nanos = 1_700_000_000_000_000_000L;
+        System.out.println("Merged (epoch nanos): " + mergeTwoArbitraryLists(
+                Arrays.asList(new LongInterval(nanos, nanos + 5_000_000_000L)),
+                Arrays.asList(new LongInterval(nanos + 4_000_000_000L, nanos + 9_000_000_000L))));
+
+        int trials = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        crossCheck(trials, new Random(42));
+        System.out.println("Cross-check against MergeIntervals passed (" + trials + " trials per policy)");
+    }
+
+    /**
+     * Every policy reduces to the int rule on shifted ends: ADJACENT on [s, e] is
+     * SHARED_ENDPOINT on [s, e + 1], OVERLAPPING on [s, e] (e > s) is SHARED_ENDPOINT on
+     * [s, e - 1]; merged ends shift back the same way. Under OVERLAPPING a zero-length
+     * interval [p, p] has no shifted form: it is folded into a result interval covering p,
+     * else kept once on its own.
+     */
+    private static void crossCheck(int trials, Random random) {
+        checkCase(TouchPolicy.OVERLAPPING, Arrays.asList(new LongInterval(1, 10), new LongInterval(5, 5)),
+                Collections.emptyList(), "[[1, 10]]");
+        checkCase(TouchPolicy.OVERLAPPING, Arrays.asList(new LongInterval(5, 5)),
+                Arrays.asList(new LongInterval(5, 5)), "[[5, 5]]");
+        checkCase(TouchPolicy.OVERLAPPING, Arrays.asList(new LongInterval(1, 5), new LongInterval(5, 5)),
+                Arrays.asList(new LongInterval(5, 9)), "[[1, 5], [5, 9]]");
+        checkCase(TouchPolicy.OVERLAPPING, Arrays.asList(new LongInterval(5, 5)),
+                Arrays.asList(new LongInterval(5, 7)), "[[5, 7]]");
+        for (TouchPolicy policy : TouchPolicy.values()) {
+            int shift = policy == TouchPolicy.ADJACENT ? 1 : policy == TouchPolicy.OVERLAPPING ? -1 : 0;
+            for (int trial = 0; trial < trials; trial++) {
+                int size = random.nextInt(12);
+                List<LongInterval> listA = new ArrayList<>();
+                List<LongInterval> listB = new ArrayList<>();
+                List<MergeIntervals.Interval> intA = new ArrayList<>();
+                List<MergeIntervals.Interval> intB = new ArrayList<>();
+                List<Long> points = new ArrayList<>();
+                for (int i = 0; i < size; i++) {
+                    int start = random.nextInt(60);
+                    // One in four is zero-length
+                    int end = random.nextInt(4) == 0 ? start : start + 1 + random.nextInt(6);
+                    boolean toA = random.nextBoolean();
+                    (toA ? listA : listB).add(new LongInterval(start, end));
+                    if (end == start && shift < 0) {
+                        points.add((long) start);
+                    } else {
+                        (toA ? intA : intB).add(new MergeIntervals.Interval(start, end + shift));
+                    }
+                }
+                List<LongInterval> expected = new ArrayList<>();
+                for (MergeIntervals.Interval interval : MergeIntervals.mergeTwoArbitraryLists(intA, intB)) {
+                    expected.add(new LongInterval(interval.start, interval.end - shift));
+                }
+                for (long point : points) {
+                    boolean covered = false;
+                    for (LongInterval interval : expected) {
+                        covered |= interval.start <= point && point <= interval.end;
+                    }
+                    if (!covered) {
+                        expected.add(new LongInterval(point, point));
+                    }
+                }
+                expected.sort((x, y) -> x.start != y.start ? Long.compare(x.start, y.start) : Long.compare(x.end, y.end));
+                List<LongInterval> actual = mergeTwoArbitraryLists(listA, listB, policy);
+                if (!expected.toString().equals(actual.toString())) {
+                    throw new AssertionError(policy + " " + listA + " + " + listB + ": expected "
+                            + expected + ", got " + actual);
+                }
+                // The sorted path must agree once each side is coalesced on its own
+                List<LongInterval> sortedA = mergeTwoArbitraryLists(listA, Collections.emptyList(), policy);
+                List<LongInterval> sortedB = mergeTwoArbitraryLists(listB, Collections.emptyList(), policy);
+                if (!mergeTwoSortedLists(sortedA, sortedB, policy).toString().equals(actual.toString())) {
+                    throw new AssertionError(policy + " sorted " + sortedA + " + " + sortedB + " != " + actual);
+                }
+            }
+        }
+    }
+
+    private static void checkCase(TouchPolicy policy, List<LongInterval> listA, List<LongInterval> listB,
+                                  String expected) {
+        String arbitrary = mergeTwoArbitraryLists(listA, listB, policy).toString();
+        String sorted = mergeTwoSortedLists(listA, listB, policy).toString();
+        if (!arbitrary.equals(expected) || !sorted.equals(expected)) {
+            throw new AssertionError(policy + " " + listA + " + " + listB + ": expected " + expected
+                    + ", got " + arbitrary + " (arbitrary) and " + sorted + " (sorted)");
+        }
+    }
+}
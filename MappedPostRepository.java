@@ -0,0 +1,200 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Serves a persisted feed file, written by {@link FeedFileWriter}, through memory mapping.
+ *
+ * Opening reads the header only, so even multi-GB files open at once and pages are
+ * faulted in by the OS as they are read. {@link #fetchPage} finds the first record of a
+ * page through the offset index in O(1) and decodes the page's records straight from the
+ * mapping, without copying the file through a read buffer. Cursor seeks and
+ * {@link #fetchRange} binary-search the time index, which keeps every createdAt in one
+ * dense array so a search touches few pages.
+ *
+ * File layout, all integers big-endian:
+ * <pre>
+ * header  (32 bytes)  int magic "FEED", int version, int postCount, int reserved,
+ *                     long indexOffset, long timeIndexOffset
+ * records             per post, newest first: long createdAt (epoch millis, local
+ *                     date-time as UTC), long id, byte type, short authorLength,
+ *                     int mediaUrlLength, int textLength, then the UTF-8 bytes of author,
+ *                     media URL and text; a length of -1 marks a null media URL or text
+ * index      (at indexOffset)      long[postCount] byte offset of each record
+ * time index (at timeIndexOffset)  long[postCount] createdAt of each record
+ * </pre>
+ */
+class MappedPostRepository implements PostRepository, Closeable {
+    static final int MAGIC = 0x46454544; // "FEED"
+    static final int VERSION = 2;
+    static final int HEADER_BYTES = 32;
+    static final int RECORD_FIXED_BYTES = 8 + 8 + 1 + 2 + 4 + 4;
+    /** Writers reject larger records, so one can never straddle two mappings. */
+    static final int MAX_RECORD_BYTES = 1 << 20;
+
+    // A MappedByteBuffer is int-indexed, so larger files are mapped as overlapping
+    // segments: segment i covers [i * SEGMENT_BYTES, (i + 1) * SEGMENT_BYTES + MAX_RECORD_BYTES)
+    private static final long SEGMENT_BYTES = 1L << 30;
+    private static final PostType[] TYPES = PostType.values();
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final int postCount;
+    private final long indexOffset;
+    private final long timeIndexOffset;
+    private final FeedCursor.Keys keys = new FeedCursor.Keys() {
+        @Override
+        public int size() {
+            return postCount;
+        }
+
+        @Override
+        public long millisAt(int row) {
+            return readLong(timeIndexOffset + row * 8L);
+        }
+
+        @Override
+        public long idAt(int row) {
+            return readLong(recordOffset(row) + 8);
+        }
+    };
+
+    MappedPostRepository(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IOException("Not a feed file (too short): " + file);
+            }
+            int segmentCount = (int) ((size + SEGMENT_BYTES - 1) / SEGMENT_BYTES);
+            segments = new MappedByteBuffer[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                long from = i * SEGMENT_BYTES;
+                long length = Math.min(size - from, SEGMENT_BYTES + MAX_RECORD_BYTES);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, from, length);
+            }
+            ByteBuffer header = segments[0];
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException("Not a feed file (bad magic): " + file);
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new IOException("Unsupported feed file version " + header.getInt(4) + ": " + file);
+            }
+            postCount = header.getInt(8);
+            indexOffset = header.getLong(16);
+            timeIndexOffset = header.getLong(24);
+            if (postCount < 0 || indexOffset < HEADER_BYTES || indexOffset + postCount * 8L > size
+                    || timeIndexOffset < HEADER_BYTES || timeIndexOffset + postCount * 8L > size) {
+                throw new IOException("Corrupt feed file header: " + file);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    int getPostCount() {
+        return postCount;
+    }
+
+    @Override
+    public List<Post> fetchPage(int pageIndex, int pageSize) {
+        if (pageSize <= 0 || pageIndex < 0) {
+            return List.of();
+        }
+        long start = (long) pageIndex * pageSize;
+        if (start >= postCount) {
+            return List.of();
+        }
+        return readRows((int) start, (int) Math.min(start + pageSize, postCount));
+    }
+
+    @Override
+    public Page fetchAfter(String cursor, int pageSize) {
+        int start = cursor == null ? 0 : FeedCursor.decode(cursor).firstRowAfter(keys);
+        int end = (int) Math.min((long) start + Math.max(0, pageSize), postCount);
+        if (end <= start) {
+            return new Page(List.of(), cursor);
+        }
+        List<Post> posts = readRows(start, end);
+        Post last = posts.get(posts.size() - 1);
+        return new Page(posts, FeedCursor.at(FeedCursor.toMillis(last.getCreatedAt()), last.getId(), end - 1).encode());
+    }
+
+    @Override
+    public List<Post> fetchRange(LocalDateTime from, LocalDateTime to) {
+        int start = FeedCursor.firstRowOlderThan(FeedCursor.toMillis(to), keys);
+        int end = FeedCursor.firstRowOlderThan(FeedCursor.toMillis(from), keys);
+        return start < end ? readRows(start, end) : List.of();
+    }
+
+    private List<Post> readRows(int start, int end) {
+        List<Post> out = new ArrayList<>(end - start);
+        for (int row = start; row < end; row++) {
+            out.add(readRecord(recordOffset(row)));
+        }
+        return out;
+    }
+
+    /** Closes the file; existing mappings stay readable until they are garbage collected. */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Absolute reads only, so concurrent fetches never share a buffer position
+
+    private Post readRecord(long offset) {
+        ByteBuffer segment = segmentFor(offset);
+        int at = (int) (offset % SEGMENT_BYTES);
+        long millis = segment.getLong(at);
+        long id = segment.getLong(at + 8);
+        PostType type = TYPES[segment.get(at + 16)];
+        int authorLength = segment.getShort(at + 17) & 0xFFFF;
+        int mediaLength = segment.getInt(at + 19);
+        int textLength = segment.getInt(at + 23);
+        at += RECORD_FIXED_BYTES;
+
+        String author = decode(segment, at, authorLength);
+        at += authorLength;
+        String mediaUrl = mediaLength < 0 ? null : decode(segment, at, mediaLength);
+        at += Math.max(0, mediaLength);
+        String text = textLength < 0 ? null : decode(segment, at, textLength);
+
+        LocalDateTime createdAt = FeedCursor.toDateTime(millis);
+        switch (type) {
+            case PHOTO:
+                return Post.photo(id, author, createdAt, mediaUrl, text);
+            case VIDEO:
+                return Post.video(id, author, createdAt, mediaUrl, text);
+            default:
+                return Post.text(id, author, createdAt, text);
+        }
+    }
+
+    private long recordOffset(int row) {
+        return readLong(indexOffset + row * 8L);
+    }
+
+    private long readLong(long offset) {
+        return segmentFor(offset).getLong((int) (offset % SEGMENT_BYTES));
+    }
+
+    private ByteBuffer segmentFor(long offset) {
+        return segments[(int) (offset / SEGMENT_BYTES)];
+    }
+
+    private static String decode(ByteBuffer segment, int at, int length) {
+        byte[] bytes = new byte[length];
+        segment.get(at, bytes, 0, length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
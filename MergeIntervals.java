@@ -1,8 +1,17 @@
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Utilities for merging interval lists.
@@ -14,9 +23,20 @@ import java.util.List;
  * The result is the union of all intervals across both lists, coalesced.
  *
  * If your lists might contain overlaps within themselves or are unsorted, use mergeTwoArbitraryLists instead.
+ *
+ * Set operations: intersection, difference (A - B), symmetric difference and complement within
+ * bounds take the same sorted inputs and treat intervals as sets of integer points, so
+ * [1, 10] - [3, 5] = [1, 2], [6, 10]. They run in O(n + m) on one shared sweep.
+ *
+ * Primitive API: an interval can also be packed into a single long (see {@link #pack(int, int)}),
+ * start in the high half and end in the low half, so that plain long ordering sorts by start.
+ * The packed methods work on caller-owned arrays and allocate nothing per interval.
  */
 public final class MergeIntervals {
 
+    /** Below this many intervals the parallel merge runs the sequential path. */
+    public static final int PARALLEL_THRESHOLD = 1 << 16;
+
     /** Immutable interval [start, end]. */
     public static final class Interval {
         public final int start;
@@ -79,6 +99,52 @@ public final class MergeIntervals {
         return result;
     }
 
+    /**
+     * Points covered by both sorted, individually-disjoint lists.
+     * Time: O(n + m). Space: O(n + m) for the output.
+     */
+    public static List<Interval> intersectTwoSortedLists(List<Interval> listA, List<Interval> listB) {
+        if (listA == null || listB == null) {
+            throw new IllegalArgumentException("Inputs must not be null");
+        }
+        ListOutput result = new ListOutput(listA.size() + listB.size());
+        sweep(new ListInput(listA), new ListInput(listB), INTERSECTION, result);
+        return result.intervals;
+    }
+
+    /**
+     * Points of {@code listA} not covered by {@code listB} (A - B); both sorted and individually
+     * disjoint. Intervals of A are split around those of B. Time: O(n + m).
+     */
+    public static List<Interval> subtractSortedLists(List<Interval> listA, List<Interval> listB) {
+        if (listA == null || listB == null) {
+            throw new IllegalArgumentException("Inputs must not be null");
+        }
+        ListOutput result = new ListOutput(listA.size() + listB.size());
+        sweep(new ListInput(listA), new ListInput(listB), DIFFERENCE, result);
+        return result.intervals;
+    }
+
+    /** Points covered by exactly one of two sorted, individually-disjoint lists. Time: O(n + m). */
+    public static List<Interval> symmetricDifferenceOfSortedLists(List<Interval> listA, List<Interval> listB) {
+        if (listA == null || listB == null) {
+            throw new IllegalArgumentException("Inputs must not be null");
+        }
+        ListOutput result = new ListOutput(listA.size() + listB.size());
+        sweep(new ListInput(listA), new ListInput(listB), SYMMETRIC_DIFFERENCE, result);
+        return result.intervals;
+    }
+
+    /** Points of [from, to] not covered by a sorted, individually-disjoint list. Time: O(n). */
+    public static List<Interval> complementOfSortedList(List<Interval> list, int from, int to) {
+        if (list == null) {
+            throw new IllegalArgumentException("Inputs must not be null");
+        }
+        ListOutput result = new ListOutput(list.size() + 1);
+        sweep(new ListInput(Collections.singletonList(new Interval(from, to))), new ListInput(list), DIFFERENCE, result);
+        return result.intervals;
+    }
+
     /**
      * Convenience: merge two arbitrary interval lists (unsorted and may overlap internally).
      * Implementation: concatenate, sort by start, then coalesce.
@@ -88,28 +154,530 @@ public final class MergeIntervals {
         if (listA == null || listB == null) {
             throw new IllegalArgumentException("Inputs must not be null");
         }
-
-        List<Interval> all = new ArrayList<>(listA.size() + listB.size());
-        all.addAll(listA);
-        all.addAll(listB);
-        if (all.isEmpty()) {
+        if (listA.isEmpty() && listB.isEmpty()) {
             return Collections.emptyList();
         }
+        long[] all = new long[listA.size() + listB.size()];
+        int length = 0;
+        for (Interval interval : listA) {
+            all[length++] = pack(interval.start, interval.end);
+        }
+        for (Interval interval : listB) {
+            all[length++] = pack(interval.start, interval.end);
+        }
+        int count = mergeArbitraryInPlace(all, length);
+        return fromPacked(all, count);
+    }
+
+    // ---- K-way streaming merge -------------------------------------------------------------
+
+    /**
+     * Lazily merges any number of sorted, individually-disjoint interval sources into a
+     * coalesced union. Sources are only advanced as far as needed to emit the next interval,
+     * so memory stays O(k) for k sources however long they are.
+     * Time: O(N log k) for N intervals in total.
+     *
+     * @throws IllegalArgumentException from {@code next()} if a source is not sorted by start
+     */
+    public static Iterator<Interval> mergeSortedSources(List<? extends Iterator<Interval>> sources) {
+        if (sources == null) {
+            throw new IllegalArgumentException("Inputs must not be null");
+        }
+        return new KWayMergeIterator(sources);
+    }
+
+    /** Stream form of {@link #mergeSortedSources}; closing the result closes every input stream. */
+    public static Stream<Interval> mergeSortedStreams(List<? extends Stream<Interval>> streams) {
+        if (streams == null) {
+            throw new IllegalArgumentException("Inputs must not be null");
+        }
+        List<Iterator<Interval>> iterators = new ArrayList<>(streams.size());
+        for (Stream<Interval> stream : streams) {
+            iterators.add(stream.iterator());
+        }
+        Spliterator<Interval> spliterator = Spliterators.spliteratorUnknownSize(mergeSortedSources(iterators),
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.DISTINCT);
+        return StreamSupport.stream(spliterator, false).onClose(() -> {
+            for (Stream<Interval> stream : streams) {
+                stream.close();
+            }
+        });
+    }
 
-        all.sort(Comparator.comparingInt(i -> i.start));
+    /** Min-heap of the current head of every non-exhausted source, ordered by start. */
+    private static final class KWayMergeIterator implements Iterator<Interval> {
+        private final PriorityQueue<SourceHead> heads;
 
-        List<Interval> result = new ArrayList<>(all.size());
-        Interval pending = all.get(0);
-        for (int i = 1; i < all.size(); i++) {
-            Interval current = all.get(i);
-            if (current.start <= pending.end) {
-                pending = new Interval(pending.start, Math.max(pending.end, current.end));
+        KWayMergeIterator(List<? extends Iterator<Interval>> sources) {
+            heads = new PriorityQueue<>(Math.max(1, sources.size()), (x, y) -> {
+                int byStart = Integer.compare(x.current.start, y.current.start);
+                return byStart != 0 ? byStart : Integer.compare(x.sourceIndex, y.sourceIndex);
+            });
+            for (int i = 0; i < sources.size(); i++) {
+                Iterator<Interval> source = sources.get(i);
+                if (source.hasNext()) {
+                    heads.add(new SourceHead(source, i, source.next()));
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public Interval next() {
+            if (heads.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            Interval pending = advance(heads.poll());
+            boolean merged = false;
+            int pendingEnd = pending.end;
+            while (!heads.isEmpty() && heads.peek().current.start <= pendingEnd) { // overlap or touch
+                Interval next = advance(heads.poll());
+                pendingEnd = Math.max(pendingEnd, next.end);
+                merged = true;
+            }
+            return merged ? new Interval(pending.start, pendingEnd) : pending;
+        }
+
+        /** Returns the head's interval and re-queues the head on its source's next one. */
+        private Interval advance(SourceHead head) {
+            Interval taken = head.current;
+            if (head.source.hasNext()) {
+                Interval next = head.source.next();
+                if (next.start < taken.start) {
+                    throw new IllegalArgumentException("Source " + head.sourceIndex + " is not sorted: "
+                            + next + " after " + taken);
+                }
+                head.current = next;
+                heads.add(head);
+            }
+            return taken;
+        }
+    }
+
+    private static final class SourceHead {
+        final Iterator<Interval> source;
+        final int sourceIndex;
+        Interval current;
+
+        SourceHead(Iterator<Interval> source, int sourceIndex, Interval current) {
+            this.source = source;
+            this.sourceIndex = sourceIndex;
+            this.current = current;
+        }
+    }
+
+    // ---- Primitive API -------------------------------------------------------------------
+
+    /** Packs [start, end] into one long whose natural order is by start. */
+    public static long pack(int start, int end) {
+        if (end < start) {
+            throw new IllegalArgumentException("Interval end must be >= start: [" + start + ", " + end + "]");
+        }
+        return ((long) start << 32) | (end & 0xFFFFFFFFL);
+    }
+
+    public static int startOf(long packed) {
+        return (int) (packed >> 32);
+    }
+
+    public static int endOf(long packed) {
+        return (int) packed;
+    }
+
+    /**
+     * Primitive form of {@link #mergeTwoSortedLists}: merges the first {@code lengthA} and
+     * {@code lengthB} packed intervals of two sorted, individually-disjoint arrays into
+     * {@code out}, which needs room for {@code lengthA + lengthB} intervals.
+     * Returns the number of intervals written. Time: O(n + m); no allocation.
+     */
+    public static int mergeSorted(long[] a, int lengthA, long[] b, int lengthB, long[] out) {
+        checkOutput(out, lengthA + lengthB);
+        if (lengthA + lengthB == 0) {
+            return 0;
+        }
+        int indexA = 0;
+        int indexB = 0;
+        int count = 0;
+        int pendingStart = 0;
+        int pendingEnd = 0;
+        boolean hasPending = false;
+
+        while (indexA < lengthA || indexB < lengthB) {
+            long next;
+            if (indexB >= lengthB || (indexA < lengthA && startOf(a[indexA]) <= startOf(b[indexB]))) {
+                next = a[indexA++];
             } else {
-                result.add(pending);
-                pending = current;
+                next = b[indexB++];
+            }
+            int start = startOf(next);
+            int end = endOf(next);
+            if (!hasPending) {
+                pendingStart = start;
+                pendingEnd = end;
+                hasPending = true;
+            } else if (start <= pendingEnd) { // overlap or touch -> merge
+                pendingEnd = Math.max(pendingEnd, end);
+            } else { // disjoint -> flush pending
+                out[count++] = pack(pendingStart, pendingEnd);
+                pendingStart = start;
+                pendingEnd = end;
+            }
+        }
+        out[count++] = pack(pendingStart, pendingEnd);
+        return count;
+    }
+
+    /** Primitive form of {@link #intersectTwoSortedLists}; {@code out} needs room for {@code lengthA + lengthB}. */
+    public static int intersectSorted(long[] a, int lengthA, long[] b, int lengthB, long[] out) {
+        checkOutput(out, lengthA + lengthB);
+        return sweep(new PackedInput(a, lengthA), new PackedInput(b, lengthB), INTERSECTION, new PackedOutput(out));
+    }
+
+    /** Primitive form of {@link #subtractSortedLists}; {@code out} needs room for {@code lengthA + lengthB}. */
+    public static int subtractSorted(long[] a, int lengthA, long[] b, int lengthB, long[] out) {
+        checkOutput(out, lengthA + lengthB);
+        return sweep(new PackedInput(a, lengthA), new PackedInput(b, lengthB), DIFFERENCE, new PackedOutput(out));
+    }
+
+    /** Primitive form of {@link #symmetricDifferenceOfSortedLists}; {@code out} needs room for {@code lengthA + lengthB}. */
+    public static int symmetricDifferenceSorted(long[] a, int lengthA, long[] b, int lengthB, long[] out) {
+        checkOutput(out, lengthA + lengthB);
+        return sweep(new PackedInput(a, lengthA), new PackedInput(b, lengthB), SYMMETRIC_DIFFERENCE,
+                new PackedOutput(out));
+    }
+
+    /** Primitive form of {@link #complementOfSortedList}; {@code out} needs room for {@code length + 1}. */
+    public static int complementSorted(long[] intervals, int length, int from, int to, long[] out) {
+        checkOutput(out, length + 1);
+        return sweep(new PackedInput(new long[]{pack(from, to)}, 1), new PackedInput(intervals, length), DIFFERENCE,
+                new PackedOutput(out));
+    }
+
+    private static void checkOutput(long[] out, int needed) {
+        if (out.length < needed) {
+            throw new IllegalArgumentException("Output buffer too small: " + out.length + " < " + needed);
+        }
+    }
+
+    /**
+     * Primitive form of {@link #mergeTwoArbitraryLists}: sorts the first {@code length} packed
+     * intervals in place (dual-pivot quicksort on the raw longs) and coalesces them in place.
+     * Returns the number of intervals left at the front of the array. No allocation.
+     */
+    public static int mergeArbitraryInPlace(long[] intervals, int length) {
+        Arrays.sort(intervals, 0, length);
+        return coalesceSortedInPlace(intervals, length);
+    }
+
+    /**
+     * Coalesces the first {@code length} packed intervals, already sorted by start, in place.
+     * Returns the number of intervals left at the front of the array.
+     */
+    public static int coalesceSortedInPlace(long[] intervals, int length) {
+        if (length == 0) {
+            return 0;
+        }
+        int count = 0;
+        int pendingStart = startOf(intervals[0]);
+        int pendingEnd = endOf(intervals[0]);
+        for (int i = 1; i < length; i++) {
+            int start = startOf(intervals[i]);
+            int end = endOf(intervals[i]);
+            if (start <= pendingEnd) {
+                pendingEnd = Math.max(pendingEnd, end);
+            } else {
+                intervals[count++] = pack(pendingStart, pendingEnd);
+                pendingStart = start;
+                pendingEnd = end;
             }
         }
-        result.add(pending);
+        intervals[count++] = pack(pendingStart, pendingEnd);
+        return count;
+    }
+
+    // ---- Sweep core ----------------------------------------------------------------------
+
+    // Which (inA, inB) states are kept, as a truth table indexed by inA | inB << 1
+    private static final int INTERSECTION = 0b1000;
+    private static final int DIFFERENCE = 0b0010;
+    private static final int SYMMETRIC_DIFFERENCE = 0b0110;
+
+    /**
+     * Two-pointer sweep behind intersection, difference, symmetric difference and complement
+     * (union keeps its dedicated loop above, which is about twice as fast). Each input is walked as a sequence
+     * of runs over half-open [start, end + 1) boundaries (in longs, so Integer.MAX_VALUE ends
+     * are safe); at every boundary position the runs that end are closed before the runs that
+     * start are opened, so only intervals sharing a point coalesce, as in the union contract.
+     * Output intervals are emitted whenever the kept state switches off.
+     * Returns the number of intervals emitted, never more than the two input sizes combined.
+     */
+    private static int sweep(SweepInput a, SweepInput b, int keep, SweepOutput out) {
+        a.reset();
+        b.reset();
+        long position;
+        while ((position = Math.min(a.next, b.next)) != Long.MAX_VALUE) {
+            // Ends first...
+            if (a.inside && a.next == position) {
+                a.exit();
+            }
+            if (b.inside && b.next == position) {
+                b.exit();
+            }
+            out.track(keeps(keep, a, b), position);
+            // ...then starts at the same position
+            if (!a.inside && a.next == position) {
+                a.enter();
+            }
+            if (!b.inside && b.next == position) {
+                b.enter();
+            }
+            out.track(keeps(keep, a, b), position);
+        }
+        return out.count;
+    }
+
+    private static boolean keeps(int keep, SweepInput a, SweepInput b) {
+        int state = (a.inside ? 1 : 0) | (b.inside ? 2 : 0);
+        return (keep >> state & 1) != 0;
+    }
+
+    /**
+     * Cursor over one sorted input. Entering a run swallows every following interval that
+     * shares a point with it, so inputs that overlap internally still sweep correctly.
+     */
+    private abstract static class SweepInput {
+        private final int size;
+        private int index;
+        boolean inside;
+        long next; // Next boundary: the run's exclusive end when inside, else the next start
+
+        SweepInput(int size) {
+            this.size = size;
+        }
+
+        abstract int start(int i);
+
+        abstract int end(int i);
+
+        void reset() {
+            index = 0;
+            inside = false;
+            next = size > 0 ? start(0) : Long.MAX_VALUE;
+        }
+
+        void enter() {
+            long end = end(index++) + 1L;
+            int start;
+            while (index < size && (start = start(index)) < end) {
+                end = Math.max(end, end(index++) + 1L);
+            }
+            next = end;
+            inside = true;
+        }
+
+        void exit() {
+            next = index < size ? start(index) : Long.MAX_VALUE;
+            inside = false;
+        }
+    }
+
+    private static final class ListInput extends SweepInput {
+        private final List<Interval> intervals;
+
+        ListInput(List<Interval> intervals) {
+            super(intervals.size());
+            this.intervals = intervals;
+        }
+
+        @Override
+        int start(int i) {
+            return intervals.get(i).start;
+        }
+
+        @Override
+        int end(int i) {
+            return intervals.get(i).end;
+        }
+    }
+
+    private static final class PackedInput extends SweepInput {
+        private final long[] intervals;
+
+        PackedInput(long[] intervals, int length) {
+            super(length);
+            this.intervals = intervals;
+        }
+
+        @Override
+        int start(int i) {
+            return startOf(intervals[i]);
+        }
+
+        @Override
+        int end(int i) {
+            return endOf(intervals[i]);
+        }
+    }
+
+    /** Collects the positions where the kept state is on; zero-length runs are dropped. */
+    private abstract static class SweepOutput {
+        int count;
+        private boolean kept;
+        private long keptFrom;
+
+        void track(boolean keep, long position) {
+            if (kept && !keep) {
+                if (keptFrom < position) {
+                    emit((int) keptFrom, (int) (position - 1));
+                }
+                kept = false;
+            } else if (!kept && keep) {
+                keptFrom = position;
+                kept = true;
+            }
+        }
+
+        abstract void emit(int start, int end);
+    }
+
+    private static final class ListOutput extends SweepOutput {
+        final List<Interval> intervals;
+
+        ListOutput(int capacity) {
+            intervals = new ArrayList<>(capacity);
+        }
+
+        @Override
+        void emit(int start, int end) {
+            intervals.add(new Interval(start, end));
+            count++;
+        }
+    }
+
+    private static final class PackedOutput extends SweepOutput {
+        private final long[] out;
+
+        PackedOutput(long[] out) {
+            this.out = out;
+        }
+
+        @Override
+        void emit(int start, int end) {
+            out[count++] = pack(start, end);
+        }
+    }
+
+    // ---- Parallel merge ----------------------------------------------------------------
+
+    /**
+     * Parallel form of {@link #mergeTwoArbitraryLists} for very large inputs, run on the common pool.
+     * Falls back to the sequential path below {@link #PARALLEL_THRESHOLD} intervals.
+     */
+    public static List<Interval> mergeTwoArbitraryListsParallel(List<Interval> listA, List<Interval> listB) {
+        if (listA == null || listB == null) {
+            throw new IllegalArgumentException("Inputs must not be null");
+        }
+        if (listA.size() + listB.size() < PARALLEL_THRESHOLD) {
+            return mergeTwoArbitraryLists(listA, listB);
+        }
+        long[] all = new long[listA.size() + listB.size()];
+        int length = 0;
+        for (Interval interval : listA) {
+            all[length++] = pack(interval.start, interval.end);
+        }
+        for (Interval interval : listB) {
+            all[length++] = pack(interval.start, interval.end);
+        }
+        int count = mergeArbitraryParallelInPlace(all, length, ForkJoinPool.commonPool());
+        return fromPacked(all, count);
+    }
+
+    /**
+     * Parallel form of {@link #mergeArbitraryInPlace}: sorts on the given pool, coalesces
+     * one chunk per worker independently, then stitches the chunk results together,
+     * folding intervals that span chunk boundaries into their predecessor.
+     * Returns the number of intervals left at the front of the array.
+     */
+    public static int mergeArbitraryParallelInPlace(long[] intervals, int length, ForkJoinPool pool) {
+        if (length < PARALLEL_THRESHOLD || pool.getParallelism() == 1) {
+            return mergeArbitraryInPlace(intervals, length);
+        }
+        // Started from inside the pool, the parallel sort forks its subtasks into it
+        // (its split count follows the common pool's parallelism)
+        pool.submit(() -> Arrays.parallelSort(intervals, 0, length)).join();
+
+        int chunks = Math.min(pool.getParallelism() * 4, length / (PARALLEL_THRESHOLD / 4));
+        List<CoalesceChunk> tasks = new ArrayList<>(chunks);
+        for (int c = 0; c < chunks; c++) {
+            int from = (int) ((long) length * c / chunks);
+            int to = (int) ((long) length * (c + 1) / chunks);
+            tasks.add(new CoalesceChunk(intervals, from, to));
+        }
+        pool.submit(() -> ForkJoinTask.invokeAll(tasks)).join();
+
+        // Stitch: chunk c's output starts at or after everything kept so far, so moving it down is safe
+        int count = 0;
+        for (CoalesceChunk task : tasks) {
+            int chunkCount = task.join();
+            int index = 0;
+            if (count > 0) {
+                int lastStart = startOf(intervals[count - 1]);
+                int lastEnd = endOf(intervals[count - 1]);
+                while (index < chunkCount && startOf(intervals[task.from + index]) <= lastEnd) {
+                    lastEnd = Math.max(lastEnd, endOf(intervals[task.from + index]));
+                    index++;
+                }
+                intervals[count - 1] = pack(lastStart, lastEnd);
+            }
+            int remaining = chunkCount - index;
+            System.arraycopy(intervals, task.from + index, intervals, count, remaining);
+            count += remaining;
+        }
+        return count;
+    }
+
+    /** Coalesces one sorted chunk in place at the chunk's own offset; yields its interval count. */
+    private static final class CoalesceChunk extends RecursiveTask<Integer> {
+        private final long[] intervals;
+        private final int from;
+        private final int to;
+
+        CoalesceChunk(long[] intervals, int from, int to) {
+            this.intervals = intervals;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Integer compute() {
+            int count = 0;
+            int pendingStart = startOf(intervals[from]);
+            int pendingEnd = endOf(intervals[from]);
+            for (int i = from + 1; i < to; i++) {
+                int start = startOf(intervals[i]);
+                int end = endOf(intervals[i]);
+                if (start <= pendingEnd) {
+                    pendingEnd = Math.max(pendingEnd, end);
+                } else {
+                    intervals[from + count++] = pack(pendingStart, pendingEnd);
+                    pendingStart = start;
+                    pendingEnd = end;
+                }
+            }
+            intervals[from + count++] = pack(pendingStart, pendingEnd);
+            return count;
+        }
+    }
+
+    private static List<Interval> fromPacked(long[] packed, int length) {
+        List<Interval> result = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            result.add(new Interval(startOf(packed[i]), endOf(packed[i])));
+        }
         return result;
     }
 
@@ -131,6 +699,19 @@ public final class MergeIntervals {
 
         List<Interval> mergedArbitrary = mergeTwoArbitraryLists(a, b);
         System.out.println("Merged (arbitrary inputs): " + mergedArbitrary);
+
+        List<Interval> c = Arrays.asList(
+                new Interval(0, 1),
+                new Interval(16, 20)
+        );
+        List<Interval> mergedStreaming = new ArrayList<>();
+        mergeSortedSources(Arrays.asList(a.iterator(), b.iterator(), c.iterator())).forEachRemaining(mergedStreaming::add);
+        System.out.println("Merged (k-way streaming): " + mergedStreaming);
+
+        System.out.println("A and B: " + intersectTwoSortedLists(a, b));
+        System.out.println("A - B: " + subtractSortedLists(a, b));
+        System.out.println("A xor B: " + symmetricDifferenceOfSortedLists(a, b));
+        System.out.println("Not A within [0, 16]: " + complementOfSortedList(a, 0, 16));
     }
 }
 
@@ -0,0 +1,201 @@
+import javax.swing.SwingUtilities;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Fetches feed pages from a {@link PostRepository} off the event dispatch thread.
+ *
+ * Pages are read by cursor, each one continuing after the last post delivered, so they
+ * do not shift when posts are added and cost the same however far the reader has
+ * scrolled. Since a page needs the cursor of the one before it, one request is in flight
+ * at a time; reading further ahead (when scrolling fast) asks for several pages' worth of
+ * posts in that request instead of several requests. Posts reach the consumer on the
+ * EDT in feed order.
+ *
+ * A failed request is asked again from the same cursor after a backoff that
+ * doubles up to {@value #MAX_RETRY_DELAY_MS}ms, so a feed whose first page failed does
+ * not stay empty waiting for a scroll that cannot happen. The first failure of an outage
+ * and the recovery are logged; failures are counted in {@link #getFailureCount()}.
+ */
+class PageLoader {
+    enum State {
+        /** Nothing in flight; more pages may exist. */
+        IDLE,
+        /** A page request is in flight. */
+        LOADING,
+        /** The last request failed; it is asked again once the backoff has passed. */
+        RETRYING,
+        /** The repository returned an empty page; no further requests are made. */
+        EXHAUSTED,
+        /** {@link #close()} was called. */
+        CLOSED
+    }
+
+    private static final System.Logger LOG = System.getLogger(PageLoader.class.getName());
+    private static final int MAX_PREFETCH_PAGES = 4;
+    private static final double LOOKAHEAD_SECONDS = 1.5;
+    private static final long FIRST_RETRY_DELAY_MS = 500;
+    private static final long MAX_RETRY_DELAY_MS = 30_000;
+
+    private final PostRepository repository;
+    private final int pageSize;
+    private final Consumer<List<Post>> onPages;
+    private final ScheduledExecutorService fetchExecutor;
+    private final LongAdder failures = new LongAdder();
+
+    // Guarded by this
+    private State state = State.IDLE;
+    private int generation = 0;
+    private String cursor = null; // null reads from the newest post
+    private CompletableFuture<PostRepository.Page> inFlight = null;
+    private int requestedPages = 1;
+    private int consecutiveFailures = 0;
+    private ScheduledFuture<?> pendingRetry = null;
+
+    PageLoader(PostRepository repository, int pageSize, Consumer<List<Post>> onPages) {
+        this.repository = repository;
+        this.pageSize = pageSize;
+        this.onPages = onPages;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.fetchExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "feed-page-loader-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Fetches up to {@code limit} posts after the cursor on the loader's background executor. */
+    CompletableFuture<PostRepository.Page> fetchAfterAsync(String after, int limit) {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            try {
+                return repository.fetchAfter(after, limit);
+            } finally {
+                FeedMetrics.record(FeedMetrics.Stage.PAGE_FETCH, start);
+            }
+        }, fetchExecutor);
+    }
+
+    /**
+     * Number of pages to keep requested ahead for the given scroll speed: enough to cover
+     * {@value #LOOKAHEAD_SECONDS}s of scrolling, between 1 and {@value #MAX_PREFETCH_PAGES}.
+     */
+    static int prefetchDepth(double pixelsPerSecond, int pixelsPerPage) {
+        if (pixelsPerPage <= 0 || pixelsPerSecond <= 0) {
+            return 1;
+        }
+        int pages = (int) Math.ceil(pixelsPerSecond * LOOKAHEAD_SECONDS / pixelsPerPage);
+        return Math.max(1, Math.min(MAX_PREFETCH_PAGES, pages));
+    }
+
+    /** Requests the next {@code pagesAhead} pages' worth of posts unless a request is already in flight. */
+    synchronized void requestAhead(int pagesAhead) {
+        if (state != State.IDLE) {
+            return;
+        }
+        int requestGeneration = generation;
+        requestedPages = Math.max(1, pagesAhead);
+        inFlight = fetchAfterAsync(cursor, pageSize * requestedPages);
+        state = State.LOADING;
+        inFlight.whenComplete((page, error) -> onFetched(requestGeneration, page, error));
+    }
+
+    /** Stops fetching: cancels the outstanding request or retry and shuts the executor down. */
+    synchronized void close() {
+        cancelInFlight();
+        generation++;
+        state = State.CLOSED;
+        fetchExecutor.shutdownNow();
+    }
+
+    /** Number of page requests that failed since the loader was created. */
+    long getFailureCount() {
+        return failures.sum();
+    }
+
+    synchronized boolean hasMorePages() {
+        return state != State.EXHAUSTED && state != State.CLOSED;
+    }
+
+    private void cancelInFlight() {
+        if (inFlight != null) {
+            inFlight.cancel(true);
+            inFlight = null;
+        }
+        if (pendingRetry != null) {
+            pendingRetry.cancel(false);
+            pendingRetry = null;
+        }
+    }
+
+    /** Delay before the given retry: doubles from {@value #FIRST_RETRY_DELAY_MS}ms up to the cap. */
+    static long retryDelayMillis(int attempt) {
+        int doublings = Math.min(Math.max(0, attempt - 1), 16);
+        return Math.min(MAX_RETRY_DELAY_MS, FIRST_RETRY_DELAY_MS << doublings);
+    }
+
+    private void retry(int requestGeneration) {
+        synchronized (this) {
+            if (requestGeneration != generation || state != State.RETRYING) {
+                return;
+            }
+            pendingRetry = null;
+            state = State.IDLE;
+            requestAhead(requestedPages);
+        }
+    }
+
+    private void onFetched(int requestGeneration, PostRepository.Page page, Throwable error) {
+        synchronized (this) {
+            if (requestGeneration != generation) {
+                return; // superseded by close()
+            }
+            inFlight = null;
+            if (error != null) {
+                failures.increment();
+                consecutiveFailures++;
+                long delay = retryDelayMillis(consecutiveFailures);
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error;
+                if (consecutiveFailures == 1) {
+                    // Once per outage; the retries that follow are counted, not logged
+                    LOG.log(System.Logger.Level.WARNING, "Feed page request failed; retrying with backoff up to "
+                            + MAX_RETRY_DELAY_MS + "ms", cause);
+                }
+                // Ask again from the same cursor; scrolling meanwhile does not pile up requests
+                state = State.RETRYING;
+                pendingRetry = fetchExecutor.schedule(() -> retry(requestGeneration), delay, TimeUnit.MILLISECONDS);
+                return;
+            }
+            if (consecutiveFailures > 0) {
+                LOG.log(System.Logger.Level.INFO, "Feed page request succeeded after " + consecutiveFailures
+                        + " failed attempts");
+                consecutiveFailures = 0;
+            }
+            if (page.posts.isEmpty()) {
+                state = State.EXHAUSTED;
+                return;
+            }
+            cursor = page.nextCursor;
+            state = State.IDLE;
+        }
+        SwingUtilities.invokeLater(() -> deliver(requestGeneration, page.posts));
+    }
+
+    private void deliver(int requestGeneration, List<Post> batch) {
+        synchronized (this) {
+            if (requestGeneration != generation) {
+                return;
+            }
+        }
+        onPages.accept(batch);
+    }
+}
@@ -0,0 +1,376 @@
+import javax.swing.ImageIcon;
+import javax.swing.JComponent;
+import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import java.awt.Color;
+import java.awt.Cursor;
+import java.awt.Desktop;
+import java.awt.Dimension;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Insets;
+import java.awt.Rectangle;
+import java.awt.Toolkit;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Map;
+
+/**
+ * Card for a single post, painted by one component: the header, wrapped text, photo or
+ * video placeholder and play button are drawn rather than built from child components,
+ * so binding a post touches no component tree and measuring it needs no layout pass.
+ * Looks like {@link PostPanel}; the play button is hit-tested here.
+ *
+ * Line breaks come from {@link RenderResources#TEXT_MEASURES}, and {@link #heightFor} gives
+ * a cell's height from the post's type and text alone, so rows can be sized before a cell
+ * is bound to them. Use on the EDT.
+ */
+class PaintedPostCell extends JComponent implements FeedCell {
+    private static final int CONTENT_WIDTH = 600;
+    static final int MEDIA_HEIGHT = 300; // PostPanel sizes its photo and video areas to this too
+    private static final int PLAY_BUTTON_HEIGHT = 25; // A default button with a one-line label
+    private static final int CAPTION_GAP = 8;
+    private static final Insets CARD_INSETS = RenderResources.CARD_BORDER.getBorderInsets(null);
+    private static final FontMetrics BODY_METRICS = RenderResources.fontMetrics(RenderResources.BODY_FONT);
+    private static final FontMetrics CAPTION_METRICS = RenderResources.fontMetrics(RenderResources.CAPTION_FONT);
+    private static final int HEADER_HEIGHT = Math.max(RenderResources.fontMetrics(RenderResources.AUTHOR_FONT).getHeight(),
+            RenderResources.fontMetrics(RenderResources.META_FONT).getHeight());
+    private static final Map<?, ?> DESKTOP_TEXT_HINTS =
+            (Map<?, ?>) Toolkit.getDefaultToolkit().getDesktopProperty("awt.font.desktophints");
+
+    private final PostType type;
+    private final ImageLoader imageLoader;
+    private Post post;
+    private String author;
+    private String when;
+    private String text; // TEXT body, never null, or PHOTO and VIDEO caption, null if there is none
+    private ImageIcon photo;
+    private String photoStatus;
+    private ImageLoader.ImageRequest imageRequest;
+    private int imagePriority = ImageLoader.PRIORITY_UNKNOWN;
+    private final Rectangle playButton = new Rectangle();
+    private boolean playPressed;
+
+    PaintedPostCell(Post post, ImageLoader imageLoader) {
+        this(post.getType(), imageLoader);
+        bind(post);
+    }
+
+    PaintedPostCell(PostType type, ImageLoader imageLoader) {
+        this.type = type;
+        this.imageLoader = imageLoader;
+        setOpaque(true);
+        setBackground(RenderResources.CARD_BG);
+        setForeground(RenderResources.TEXT_COLOR);
+        setBorder(RenderResources.CARD_BORDER);
+        if (type == PostType.VIDEO) {
+            PlayButtonMouse mouse = new PlayButtonMouse();
+            addMouseListener(mouse);
+            addMouseMotionListener(mouse);
+        }
+    }
+
+    @Override
+    public PostType getPostType() {
+        return type;
+    }
+
+    @Override
+    public Post getPost() {
+        return post;
+    }
+
+    @Override
+    public JComponent getComponent() {
+        return this;
+    }
+
+    @Override
+    public void bind(Post post) {
+        if (post.getType() != type) {
+            throw new IllegalArgumentException("Cannot bind " + post.getType() + " post to " + type + " cell");
+        }
+        unbind();
+        this.post = post;
+        String name = RenderResources.displayAuthor(post.getAuthor());
+        author = name == null ? "" : name;
+        when = RenderResources.formatTimestamp(post.getCreatedAt());
+
+        String content = post.getContentText();
+        if (type == PostType.TEXT) {
+            text = content == null ? "" : content;
+        } else {
+            text = content == null || content.isEmpty() ? null : content;
+        }
+        if (type == PostType.PHOTO) {
+            loadPhoto(post);
+        }
+        repaint();
+    }
+
+    @Override
+    public void setImagePriority(int distance) {
+        imagePriority = distance;
+        if (imageRequest != null) {
+            imageRequest.setPriority(distance);
+        }
+    }
+
+    @Override
+    public void unbind() {
+        if (imageRequest != null) {
+            imageRequest.cancel();
+            imageRequest = null;
+        }
+        imagePriority = ImageLoader.PRIORITY_UNKNOWN;
+        post = null;
+        photo = null;
+        playPressed = false;
+    }
+
+    @Override
+    public int measureHeight(int width) {
+        return heightFor(type, text, width);
+    }
+
+    /** Height of a cell of the given width showing a post with this type and text. */
+    static int heightFor(PostType type, String contentText, int width) {
+        int contentWidth = Math.max(1, width - CARD_INSETS.left - CARD_INSETS.right);
+        int height = CARD_INSETS.top + HEADER_HEIGHT + CARD_INSETS.bottom;
+        if (type == PostType.TEXT) {
+            String body = contentText == null ? "" : contentText;
+            return height + RenderResources.TEXT_MEASURES.height(body, BODY_METRICS, contentWidth);
+        }
+        height += MEDIA_HEIGHT + (type == PostType.VIDEO ? PLAY_BUTTON_HEIGHT : 0);
+        if (contentText != null && !contentText.isEmpty()) {
+            height += CAPTION_GAP + RenderResources.TEXT_MEASURES.height(contentText, CAPTION_METRICS, contentWidth);
+        }
+        return height;
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        if (isPreferredSizeSet()) {
+            return super.getPreferredSize();
+        }
+        Insets insets = getInsets();
+        int width = getWidth() > 0 ? getWidth() : CONTENT_WIDTH + insets.left + insets.right;
+        return new Dimension(width, measureHeight(width));
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Graphics2D g2 = (Graphics2D) g.create();
+        try {
+            g2.setColor(getBackground());
+            g2.fillRect(0, 0, getWidth(), getHeight());
+            if (post == null) {
+                return;
+            }
+            if (DESKTOP_TEXT_HINTS != null) {
+                // Text antialiasing as the look and feel applies it to labels and text areas
+                g2.addRenderingHints(DESKTOP_TEXT_HINTS);
+            }
+            Insets insets = getInsets();
+            int x = insets.left;
+            int y = insets.top;
+            int width = Math.max(1, getWidth() - insets.left - insets.right);
+
+            paintHeader(g2, x, y, width);
+            y += HEADER_HEIGHT;
+            if (type == PostType.PHOTO) {
+                paintPhoto(g2, x, y, width);
+                y += MEDIA_HEIGHT;
+            } else if (type == PostType.VIDEO) {
+                Graphics2D thumb = (Graphics2D) g2.create(x, y, width, MEDIA_HEIGHT);
+                RenderResources.paintVideoThumbnail(thumb, width, MEDIA_HEIGHT);
+                thumb.dispose();
+                y += MEDIA_HEIGHT;
+                playButton.setBounds(x, y, width, PLAY_BUTTON_HEIGHT);
+                paintPlayButton(g2);
+                y += PLAY_BUTTON_HEIGHT;
+            }
+            if (text != null) {
+                paintText(g2, x, type == PostType.TEXT ? y : y + CAPTION_GAP, width);
+            }
+        } finally {
+            g2.dispose();
+        }
+    }
+
+    private void paintHeader(Graphics2D g2, int x, int y, int width) {
+        g2.setFont(RenderResources.AUTHOR_FONT);
+        g2.setColor(getForeground());
+        g2.drawString(author, x, y + centeredBaseline(g2.getFontMetrics(), HEADER_HEIGHT));
+
+        g2.setFont(RenderResources.META_FONT);
+        g2.setColor(RenderResources.META_COLOR);
+        FontMetrics metrics = g2.getFontMetrics();
+        g2.drawString(when, x + width - metrics.stringWidth(when), y + centeredBaseline(metrics, HEADER_HEIGHT));
+    }
+
+    private void paintText(Graphics2D g2, int x, int y, int width) {
+        FontMetrics metrics = type == PostType.TEXT ? BODY_METRICS : CAPTION_METRICS;
+        TextMeasureCache.Lines lines = RenderResources.TEXT_MEASURES.lines(text, metrics, width);
+        g2.setFont(metrics.getFont());
+        g2.setColor(getForeground());
+        Rectangle clip = g2.getClipBounds();
+        int baseline = y + metrics.getAscent();
+        for (int line = 0; line < lines.count(); line++, baseline += metrics.getHeight()) {
+            if (clip != null && (baseline + metrics.getDescent() < clip.y || baseline - metrics.getAscent() > clip.y + clip.height)) {
+                continue;
+            }
+            g2.drawString(text.substring(lines.start(line), lines.end(line)), x, baseline);
+        }
+    }
+
+    private void paintPhoto(Graphics2D g2, int x, int y, int width) {
+        g2.setColor(RenderResources.PLACEHOLDER_BG);
+        g2.fillRect(x, y, width, MEDIA_HEIGHT);
+        if (photo != null) {
+            // Centered and clipped to the media area, like the icon of a fixed-size label
+            Graphics2D clipped = (Graphics2D) g2.create(x, y, width, MEDIA_HEIGHT);
+            photo.paintIcon(this, clipped, (width - photo.getIconWidth()) / 2, (MEDIA_HEIGHT - photo.getIconHeight()) / 2);
+            clipped.dispose();
+            return;
+        }
+        RenderResources.PLACEHOLDER_BORDER.paintBorder(this, g2, x, y, width, MEDIA_HEIGHT);
+        g2.setFont(RenderResources.META_FONT);
+        g2.setColor(getForeground());
+        FontMetrics metrics = g2.getFontMetrics();
+        g2.drawString(photoStatus, x + (width - metrics.stringWidth(photoStatus)) / 2,
+                y + centeredBaseline(metrics, MEDIA_HEIGHT));
+    }
+
+    private void paintPlayButton(Graphics2D g2) {
+        Color background = RenderResources.PLAY_BUTTON_BG;
+        g2.setColor(playPressed ? background.darker() : background);
+        g2.fillRect(playButton.x, playButton.y, playButton.width, playButton.height);
+        g2.setFont(RenderResources.META_FONT);
+        g2.setColor(Color.WHITE);
+        FontMetrics metrics = g2.getFontMetrics();
+        String label = "Play Video";
+        g2.drawString(label, playButton.x + (playButton.width - metrics.stringWidth(label)) / 2,
+                playButton.y + centeredBaseline(metrics, playButton.height));
+    }
+
+    private void loadPhoto(Post boundPost) {
+        String url = boundPost.getMediaUrl();
+        photoStatus = "Loading image...";
+        if (url == null || url.isEmpty()) {
+            photoStatus = "Image URL missing";
+            return;
+        }
+        ImageIcon cached = imageLoader.getCached(url);
+        if (cached != null) {
+            photo = cached;
+            return;
+        }
+        requestPhoto(boundPost);
+    }
+
+    private void requestPhoto(Post boundPost) {
+        ImageLoader.ImageRequest request = imageLoader.load(boundPost.getMediaUrl(), imagePriority);
+        imageRequest = request;
+        // At most two repaints per image: an optional preview, then the thumbnail
+        request.preview().thenAccept(preview -> {
+            if (preview != null) {
+                SwingUtilities.invokeLater(() -> {
+                    if (post == boundPost && !request.future().isDone()) {
+                        showPhoto(preview);
+                    }
+                });
+            }
+        });
+        request.future().whenComplete((icon, error) -> SwingUtilities.invokeLater(() -> {
+            // The cell may have been recycled for another post meanwhile
+            if (post != boundPost) {
+                return;
+            }
+            if (icon != null) {
+                showPhoto(icon);
+            } else if (error instanceof ImageLoader.LoadDroppedException) {
+                // Shed while scrolling fast, yet still bound: ask again shortly, at the distance by then
+                requestPhotoLater(boundPost, request);
+            } else {
+                photoStatus = "Failed to load image";
+                showPhoto(null); // Drop a preview that will not be followed by the image
+            }
+        }));
+    }
+
+    /** Re-requests a dropped photo after a pause; the loader kept its bytes, so only the decode repeats. */
+    private void requestPhotoLater(Post boundPost, ImageLoader.ImageRequest dropped) {
+        Timer timer = new Timer(ImageLoader.DROPPED_RETRY_DELAY_MS, e -> {
+            if (post == boundPost && imageRequest == dropped) {
+                requestPhoto(boundPost);
+            }
+        });
+        timer.setRepeats(false);
+        timer.start();
+    }
+
+    private void showPhoto(ImageIcon icon) {
+        photo = icon;
+        Insets insets = getInsets();
+        repaint(insets.left, insets.top + HEADER_HEIGHT, getWidth() - insets.left - insets.right, MEDIA_HEIGHT);
+    }
+
+    private void openInBrowser(String url) {
+        if (Desktop.isDesktopSupported()) {
+            try {
+                Desktop.getDesktop().browse(URI.create(url));
+            } catch (IOException ex) {
+                JOptionPane.showMessageDialog(this, "Failed to open video:", "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        } else {
+            JOptionPane.showMessageDialog(this, "Desktop browse not supported", "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private static int centeredBaseline(FontMetrics metrics, int height) {
+        return (height - metrics.getHeight()) / 2 + metrics.getAscent();
+    }
+
+    /** Presses, releases and hover cursor of the painted play button. */
+    private final class PlayButtonMouse extends MouseAdapter {
+        @Override
+        public void mousePressed(MouseEvent e) {
+            if (SwingUtilities.isLeftMouseButton(e) && playButton.contains(e.getPoint())) {
+                setPlayPressed(true);
+            }
+        }
+
+        @Override
+        public void mouseReleased(MouseEvent e) {
+            boolean clicked = playPressed && playButton.contains(e.getPoint());
+            setPlayPressed(false);
+            String url = post == null ? null : post.getMediaUrl();
+            if (clicked && url != null && !url.isEmpty()) {
+                openInBrowser(url);
+            }
+        }
+
+        @Override
+        public void mouseMoved(MouseEvent e) {
+            setCursor(playButton.contains(e.getPoint()) ? Cursor.getPredefinedCursor(Cursor.HAND_CURSOR) : null);
+        }
+
+        @Override
+        public void mouseExited(MouseEvent e) {
+            setCursor(null);
+            setPlayPressed(false);
+        }
+
+        private void setPlayPressed(boolean pressed) {
+            if (playPressed != pressed) {
+                playPressed = pressed;
+                repaint(playButton);
+            }
+        }
+    }
+}
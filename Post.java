@@ -2,13 +2,15 @@ import java.time.LocalDateTime;
 import java.util.Objects;
 
 class Post {
+    private final long id;
     private final String author;
     private final LocalDateTime createdAt;
     private final PostType type;
     private final String contentText;
     private final String mediaUrl;
 
-    private Post(String author, LocalDateTime createdAt, PostType type, String mediaUrl, String contentText) {
+    private Post(long id, String author, LocalDateTime createdAt, PostType type, String mediaUrl, String contentText) {
+        this.id = id;
         this.author = Objects.requireNonNull(author, "author");
         this.createdAt = Objects.requireNonNull(createdAt, "createdAt");
         this.type = Objects.requireNonNull(type, "type");
@@ -17,15 +19,32 @@ class Post {
     }
 
     public static Post text(String author, LocalDateTime createdAt, String text) {
-        return new Post(author, createdAt, PostType.TEXT, null, text);
+        return text(0, author, createdAt, text);
+    }
+
+    public static Post text(long id, String author, LocalDateTime createdAt, String text) {
+        return new Post(id, author, createdAt, PostType.TEXT, null, text);
     }
 
     public static Post photo(String author, LocalDateTime createdAt, String imageUrl, String caption) {
-        return new Post(author, createdAt, PostType.PHOTO, imageUrl, caption);
+        return photo(0, author, createdAt, imageUrl, caption);
+    }
+
+    public static Post photo(long id, String author, LocalDateTime createdAt, String imageUrl, String caption) {
+        return new Post(id, author, createdAt, PostType.PHOTO, imageUrl, caption);
     }
 
     public static Post video(String author, LocalDateTime createdAt, String videoUrl, String caption) {
-        return new Post(author, createdAt, PostType.VIDEO, videoUrl, caption);
+        return video(0, author, createdAt, videoUrl, caption);
+    }
+
+    public static Post video(long id, String author, LocalDateTime createdAt, String videoUrl, String caption) {
+        return new Post(id, author, createdAt, PostType.VIDEO, videoUrl, caption);
+    }
+
+    /** Repository-assigned id, unique within a feed and larger for newer posts; 0 if unassigned. */
+    public long getId() {
+        return id;
     }
 
     public String getAuthor() {
@@ -1,83 +1,144 @@
 import javax.swing.*;
-import javax.swing.border.EmptyBorder;
 import java.awt.*;
 import java.awt.event.ActionEvent;
-import java.awt.image.BufferedImage;
 import java.io.IOException;
-import javax.imageio.ImageIO;
 import java.awt.Desktop;
 import java.net.URI;
-import java.net.URL;
-import java.time.format.DateTimeFormatter;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
 
-class PostPanel extends JPanel {
+/**
+ * Card for a single post, built from nested Swing components. A panel is built once for a
+ * {@link PostType} and can be re-bound to other posts of the same type, so the feed viewport
+ * can recycle it. Fonts, colors, borders and header strings come from {@link RenderResources}.
+ * {@link PaintedPostCell} draws the same card as a single component.
+ */
+class PostPanel extends JPanel implements FeedCell {
     private static final int CONTENT_WIDTH = 600;
-    private static final Color CARD_BG = Color.WHITE;
-    private static final Color BORDER_COLOR = new Color(230, 230, 230);
-    private static final Color META_COLOR = new Color(120, 120, 120);
 
-    private final Post post;
-    private final ImageCache imageCache;
-    private final ExecutorService executor;
-    private Future<?> imageTask;
+    private final PostType type;
+    private final ImageLoader imageLoader;
+    private final JLabel authorLabel;
+    private final JLabel whenLabel;
+    private final JTextArea bodyArea;   // TEXT
+    private final JLabel photoLabel;    // PHOTO
+    private final JTextArea captionArea; // PHOTO and VIDEO footer
+    private Post post;
+    private ImageLoader.ImageRequest imageRequest;
+    private int imagePriority = ImageLoader.PRIORITY_UNKNOWN;
 
-    PostPanel(Post post, ImageCache imageCache, ExecutorService executor) {
-        this.post = post;
-        this.imageCache = imageCache;
-        this.executor = executor;
+    PostPanel(Post post, ImageLoader imageLoader) {
+        this(post.getType(), imageLoader);
+        bind(post);
+    }
+
+    PostPanel(PostType type, ImageLoader imageLoader) {
+        this.type = type;
+        this.imageLoader = imageLoader;
         setLayout(new BorderLayout());
-        setBackground(CARD_BG);
-        setBorder(BorderFactory.createCompoundBorder(
-                BorderFactory.createLineBorder(BORDER_COLOR),
-                new EmptyBorder(12, 12, 12, 12)
-        ));
+        setBackground(RenderResources.CARD_BG);
+        setBorder(RenderResources.CARD_BORDER);
 
-        JPanel head = createHeader();
-        add(head, BorderLayout.NORTH);
+        authorLabel = new JLabel();
+        authorLabel.setFont(RenderResources.AUTHOR_FONT);
+        whenLabel = new JLabel();
+        whenLabel.setForeground(RenderResources.META_COLOR);
+        add(createHeader(), BorderLayout.NORTH);
 
+        bodyArea = type == PostType.TEXT ? createTextContent() : null;
+        photoLabel = type == PostType.PHOTO ? createPhotoContent() : null;
         JComponent center = createCenter();
         if (center != null) {
             add(center, BorderLayout.CENTER);
         }
 
-        JComponent footer = createFooter();
-        if (footer != null) {
-            add(footer, BorderLayout.SOUTH);
+        captionArea = type == PostType.TEXT ? null : createFooter();
+        if (captionArea != null) {
+            add(captionArea, BorderLayout.SOUTH);
         }
     }
 
+    @Override
+    public PostType getPostType() {
+        return type;
+    }
+
+    @Override
+    public Post getPost() {
+        return post;
+    }
+
+    @Override
+    public JComponent getComponent() {
+        return this;
+    }
+
+    /** Shows the given post in this panel. The post must have this panel's type. */
+    @Override
+    public void bind(Post post) {
+        if (post.getType() != type) {
+            throw new IllegalArgumentException("Cannot bind " + post.getType() + " post to " + type + " panel");
+        }
+        unbind();
+        this.post = post;
+        authorLabel.setText(RenderResources.displayAuthor(post.getAuthor()));
+        whenLabel.setText(RenderResources.formatTimestamp(post.getCreatedAt()));
+
+        if (bodyArea != null) {
+            bodyArea.setText(post.getContentText());
+        }
+        if (captionArea != null) {
+            String text = post.getContentText();
+            boolean hasCaption = text != null && !text.isEmpty();
+            captionArea.setText(hasCaption ? text : "");
+            captionArea.setVisible(hasCaption);
+        }
+        if (photoLabel != null) {
+            loadPhoto(post);
+        }
+    }
+
+    @Override
+    public void setImagePriority(int distance) {
+        imagePriority = distance;
+        if (imageRequest != null) {
+            imageRequest.setPriority(distance);
+        }
+    }
+
+    @Override
+    public void unbind() {
+        if (imageRequest != null) {
+            imageRequest.cancel();
+            imageRequest = null;
+        }
+        imagePriority = ImageLoader.PRIORITY_UNKNOWN;
+        post = null;
+    }
+
+    @Override
+    public int measureHeight(int width) {
+        // Wrapped text areas report their preferred height for the width they were last laid out at
+        setSize(width, Short.MAX_VALUE);
+        validate();
+        int height = getPreferredSize().height;
+        setSize(width, height);
+        validate();
+        return getPreferredSize().height;
+    }
+
     private JPanel createHeader() {
         JPanel panel = new JPanel(new BorderLayout());
         panel.setOpaque(false);
-        JLabel author = new JLabel(capitalizeFirst(post.getAuthor()));
-        author.setFont(author.getFont().deriveFont(Font.BOLD, 14f));
-        panel.add(author, BorderLayout.WEST);
-
-        DateTimeFormatter fmt = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
-        JLabel when = new JLabel(post.getCreatedAt().format(fmt));
-        when.setForeground(META_COLOR);
-        panel.add(when, BorderLayout.EAST);
+        panel.add(authorLabel, BorderLayout.WEST);
+        panel.add(whenLabel, BorderLayout.EAST);
         return panel;
     }
 
-    private static String capitalizeFirst(String input) {
-        if (input == null || input.isEmpty()) {
-            return input;
-        }
-        int firstCodePoint = input.codePointAt(0);
-        int upperFirst = Character.toTitleCase(firstCodePoint);
-        String tail = input.substring(Character.charCount(firstCodePoint));
-        return new StringBuilder().appendCodePoint(upperFirst).append(tail).toString();
-    }
-
     private JComponent createCenter() {
-        switch (post.getType()) {
+        switch (type) {
             case TEXT:
-                return createTextContent();
+                return bodyArea;
             case PHOTO:
-                return createPhotoContent();
+                return photoLabel;
             case VIDEO:
                 return createVideoContent();
             default:
@@ -85,102 +146,124 @@ class PostPanel extends JPanel {
         }
     }
 
-    private JComponent createFooter() {
-        if (post.getType() == PostType.TEXT) {
-            return null;
-        }
-        String text = post.getContentText();
-        if (text == null || text.isEmpty()) {
-            return null;
-        }
-        JTextArea area = new JTextArea(text);
+    private JTextArea createFooter() {
+        JTextArea area = new JTextArea();
         area.setLineWrap(true);
         area.setWrapStyleWord(true);
         area.setEditable(false);
         area.setOpaque(false);
-        area.setBorder(new EmptyBorder(8, 0, 0, 0));
-        area.setFont(area.getFont().deriveFont(14f));
+        area.setBorder(RenderResources.CAPTION_BORDER);
+        area.setFont(RenderResources.CAPTION_FONT);
         return area;
     }
 
-    private JComponent createTextContent() {
-        JTextArea area = new JTextArea(post.getContentText());
+    private JTextArea createTextContent() {
+        JTextArea area = new JTextArea();
         area.setLineWrap(true);
         area.setWrapStyleWord(true);
         area.setEditable(false);
         area.setOpaque(false);
-        area.setFont(area.getFont().deriveFont(16f));
+        area.setFont(RenderResources.BODY_FONT);
         return area;
     }
 
-    private JComponent createPhotoContent() {
-        String url = post.getMediaUrl();
+    private JLabel createPhotoContent() {
         JLabel placeholder = new JLabel("Loading image...", SwingConstants.CENTER);
-        placeholder.setPreferredSize(new Dimension(CONTENT_WIDTH, 300));
         placeholder.setOpaque(true);
-        placeholder.setBackground(new Color(245, 245, 245));
-        placeholder.setBorder(BorderFactory.createLineBorder(new Color(235, 235, 235)));
+        placeholder.setBackground(RenderResources.PLACEHOLDER_BG);
+        // Fixed whatever the icon, so a photo arriving never changes the row's measured height
+        placeholder.setPreferredSize(new Dimension(CONTENT_WIDTH, PaintedPostCell.MEDIA_HEIGHT));
+        return placeholder;
+    }
+
+    private void loadPhoto(Post boundPost) {
+        String url = boundPost.getMediaUrl();
+        JLabel placeholder = photoLabel;
+        placeholder.setIcon(null);
+        placeholder.setText("Loading image...");
+        placeholder.setBorder(RenderResources.PLACEHOLDER_BORDER);
 
         if (url == null || url.isEmpty()) {
             placeholder.setText("Image URL missing");
-            return placeholder;
+            return;
         }
 
-        ImageIcon cached = imageCache.get(url);
+        ImageIcon cached = imageLoader.getCached(url);
         if (cached != null) {
-            return new JLabel(scaleToWidth(cached, CONTENT_WIDTH));
+            placeholder.setText("");
+            placeholder.setBorder(null);
+            placeholder.setIcon(cached);
+            return;
         }
 
-        imageTask = executor.submit(() -> {
-            try {
-                BufferedImage img = ImageIO.read(new URL(url));
-                if (img != null) {
-                    // Create scaled thumbnail to reduce memory footprint
-                    int targetWidth = CONTENT_WIDTH;
-                    double scale = (double) targetWidth / (double) img.getWidth();
-                    int targetHeight = (int) Math.round(img.getHeight() * scale);
-                    Image scaled = img.getScaledInstance(targetWidth, targetHeight, Image.SCALE_SMOOTH);
-                    ImageIcon icon = new ImageIcon(scaled);
-                    imageCache.put(url, icon);
-                    SwingUtilities.invokeLater(() -> {
-                        placeholder.setText("");
-                        placeholder.setIcon(scaleToWidth(icon, CONTENT_WIDTH));
-                    });
-                } else {
-                    SwingUtilities.invokeLater(() -> placeholder.setText("Failed to load image"));
-                }
-            } catch (IOException e) {
-                SwingUtilities.invokeLater(() -> placeholder.setText("Failed to load image"));
+        requestPhoto(boundPost);
+    }
+
+    private void requestPhoto(Post boundPost) {
+        // Panels showing the same URL share one download; each keeps its own request to cancel
+        ImageLoader.ImageRequest request = imageLoader.load(boundPost.getMediaUrl(), imagePriority);
+        imageRequest = request;
+        // At most two repaints per image: an optional preview, then the thumbnail
+        request.preview().thenAccept(preview -> {
+            if (preview != null) {
+                SwingUtilities.invokeLater(() -> {
+                    if (post == boundPost && !request.future().isDone()) {
+                        photoLabel.setText("");
+                        photoLabel.setIcon(preview);
+                    }
+                });
             }
         });
+        request.future().whenComplete((icon, error) -> SwingUtilities.invokeLater(() -> {
+            // The panel may have been recycled for another post meanwhile
+            if (post != boundPost) {
+                return;
+            }
+            if (icon != null) {
+                photoLabel.setText("");
+                photoLabel.setBorder(null);
+                // Already scaled to the content width by the loader; taller ones are clipped
+                photoLabel.setIcon(icon);
+            } else if (error instanceof ImageLoader.LoadDroppedException) {
+                // Shed while scrolling fast, yet still bound: ask again shortly, at the distance by then
+                requestPhotoLater(boundPost, request);
+            } else {
+                showPhotoError(boundPost);
+            }
+        }));
+    }
 
-        return placeholder;
+    /** Re-requests a dropped photo after a pause; the loader kept its bytes, so only the decode repeats. */
+    private void requestPhotoLater(Post boundPost, ImageLoader.ImageRequest dropped) {
+        Timer timer = new Timer(ImageLoader.DROPPED_RETRY_DELAY_MS, e -> {
+            if (post == boundPost && imageRequest == dropped) {
+                requestPhoto(boundPost);
+            }
+        });
+        timer.setRepeats(false);
+        timer.start();
+    }
+
+    private void showPhotoError(Post boundPost) {
+        if (post == boundPost) {
+            photoLabel.setIcon(null); // Drop a preview that will not be followed by the image
+            photoLabel.setText("Failed to load image");
+        }
     }
 
     private JComponent createVideoContent() {
-        String url = post.getMediaUrl();
         JPanel panel = new JPanel(new BorderLayout());
         panel.setOpaque(false);
         JPanel thumb = new JPanel() {
             @Override
             public Dimension getPreferredSize() {
-                return new Dimension(CONTENT_WIDTH, 300);
+                return new Dimension(CONTENT_WIDTH, PaintedPostCell.MEDIA_HEIGHT);
             }
 
             @Override
             protected void paintComponent(Graphics g) {
                 super.paintComponent(g);
-                Graphics2D g2 = (Graphics2D) g.create();
-                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-                g2.setColor(new Color(30, 30, 30));
-                g2.fillRoundRect(0, 0, getWidth(), getHeight(), 16, 16);
-
-                int size = Math.min(getWidth(), getHeight()) / 4;
-                int[] xPoints = {getWidth() / 2 - size / 2, getWidth() / 2 - size / 2, getWidth() / 2 + size};
-                int[] yPoints = {getHeight() / 2 - size, getHeight() / 2 + size, getHeight() / 2};
-                g2.setColor(new Color(255, 255, 255, 210));
-                g2.fillPolygon(xPoints, yPoints, 3);
-                g2.dispose();
+                RenderResources.paintVideoThumbnail(g, getWidth(), getHeight());
             }
         };
         thumb.setOpaque(false);
@@ -188,13 +271,14 @@ class PostPanel extends JPanel {
         JButton play = new JButton(new AbstractAction("Play Video") {
             @Override
             public void actionPerformed(ActionEvent e) {
+                String url = post == null ? null : post.getMediaUrl();
                 if (url != null && !url.isEmpty()) {
                     openInBrowser(url);
                 }
             }
         });
         play.setFocusPainted(false);
-        play.setBackground(new Color(66, 133, 244));
+        play.setBackground(RenderResources.PLAY_BUTTON_BG);
         play.setForeground(Color.WHITE);
 
         panel.add(thumb, BorderLayout.CENTER);
@@ -213,16 +297,6 @@ class PostPanel extends JPanel {
             JOptionPane.showMessageDialog(this, "Desktop browse not supported", "Error", JOptionPane.ERROR_MESSAGE);
         }
     }
-
-    private ImageIcon scaleToWidth(ImageIcon icon, int width) {
-        if (icon.getIconWidth() <= width) {
-            return icon;
-        }
-        double scale = (double) width / (double) icon.getIconWidth();
-        int height = (int) Math.round(icon.getIconHeight() * scale);
-        Image scaled = icon.getImage().getScaledInstance(width, height, Image.SCALE_SMOOTH);
-        return new ImageIcon(scaled);
-    }
 }
 
 
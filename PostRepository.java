@@ -1,53 +1,40 @@
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
 
-class PostRepository {
-    private final int totalPosts;
+/**
+ * Source of feed posts, newest first by (createdAt, id), served a page at a time.
+ * Implementations are called from {@link PageLoader} worker threads and must allow
+ * concurrent fetches.
+ */
+interface PostRepository {
 
-    PostRepository(int totalPosts) {
-        this.totalPosts = Math.max(0, totalPosts);
-    }
+    /**
+     * Returns posts [pageIndex * pageSize, (pageIndex + 1) * pageSize), fewer on the last
+     * page, and an empty list past the end or for invalid arguments.
+     */
+    List<Post> fetchPage(int pageIndex, int pageSize);
 
-    public List<Post> fetchPage(int pageIndex, int pageSize) {
-        if (pageSize <= 0 || pageIndex < 0) {
-            return List.of();
-        }
-        int start = pageIndex * pageSize;
-        if (start >= totalPosts) {
-            return List.of();
-        }
-        int endExclusive = Math.min(start + pageSize, totalPosts);
-        List<Post> out = new ArrayList<>(endExclusive - start);
-        for (int i = start; i < endExclusive; i++) {
-            out.add(generatePost(i));
-        }
-        return out;
-    }
+    /**
+     * Keyset paging: up to {@code pageSize} posts following the cursor, or from the newest
+     * post if {@code cursor} is null. Pages do not shift when posts are added, and each
+     * one costs the same however deep it is.
+     *
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    Page fetchAfter(String cursor, int pageSize);
 
-    private Post generatePost(int index) {
-        String author = "user" + index;
-        LocalDateTime createdAt = LocalDateTime.now().minusMinutes(index);
-        int mod = index % 6;
-        switch (mod) {
-            case 0:
-                return Post.text(author, createdAt, "Text post #" + index + " — welcome to the feed");
-            case 1:
-            case 2: {
-                String img = "https://picsum.photos/id/" + (100 + (index % 100)) + "/800/500";
-                return Post.photo(author, createdAt, img, "Photo caption for post #" + index);
-            }
-            case 3:
-            case 4: {
-                String video = (index % 2 == 0)
-                        ? "https://www.youtube.com/watch?v=dQw4w9WgXcQ"
-                        : "https://vimeo.com/76979871";
-                return Post.video(author, createdAt, video, "Video caption for post #" + index);
-            }
-            default:
-                return Post.text(author, createdAt, "Another text post #" + index);
+    /** Posts created in [from, to), newest first, found through the time index. */
+    List<Post> fetchRange(LocalDateTime from, LocalDateTime to);
+
+    /** Result of {@link #fetchAfter}. */
+    final class Page {
+        final List<Post> posts;
+        /** Continues after the last post returned; the given cursor again if none were. */
+        final String nextCursor;
+
+        Page(List<Post> posts, String nextCursor) {
+            this.posts = posts;
+            this.nextCursor = nextCursor;
         }
     }
 }
-
-
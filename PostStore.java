@@ -0,0 +1,489 @@
+import java.lang.ref.Reference;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Column-oriented storage for large numbers of posts.
+ *
+ * Instead of one {@link Post} with its own strings and LocalDateTime per row, every field
+ * is a primitive column: creation time as epoch milliseconds (the local date-time read as
+ * UTC, so views are exact to the millisecond), the type as a byte, authors and media URLs
+ * as ids into shared dictionaries, and texts as UTF-8 bytes in a single arena. {@link #get(int)} builds a short-lived Post view
+ * on demand; its author and URL strings are the shared dictionary instances.
+ *
+ * Rows are normally appended. {@link #insert} merges posts into a store kept in feed order,
+ * shifting each column once per call; texts stay where they were appended in the arena.
+ *
+ * {@link #evict} drops the content of rows while keeping their key and type, so a long
+ * feed can let go of posts far from the reader and {@link #restore} them when they are
+ * fetched again. Evicted rows still order inserts and can be found with {@link #rowOf}.
+ * Rows that could not be fetched again are {@linkplain #pin pinned} and never evicted.
+ *
+ * Not thread-safe. A store that is fully built before being shared, as in
+ * {@link GeneratedPostRepository}, can be read from any thread.
+ */
+final class PostStore {
+    private static final PostType[] TYPES = PostType.values();
+    /** Newest first by (createdAt, id) at the store's millisecond resolution, the order of every feed. */
+    static final Comparator<Post> FEED_ORDER = Comparator.comparingLong((Post post) -> FeedCursor.toMillis(post.getCreatedAt()))
+            .thenComparingLong(Post::getId).reversed();
+    private static final int NO_MEDIA = -1;
+    private static final int NO_TEXT = -1;
+    private static final int EVICTED = -2; // In textStarts and textEnds
+
+    private long[] ids;
+    private long[] createdAtMillis;
+    private byte[] types;
+    private int[] authorIds;
+    private int[] mediaIds; // NO_MEDIA for TEXT
+    private int[] textStarts; // NO_TEXT for a null text, EVICTED once the content is dropped
+    private int[] textEnds; // Text i spans [textStarts[i], textEnds[i]) of textBytes
+    private boolean[] pinned;
+    private byte[] textBytes;
+    private int textLength;
+    private final Dictionary authors = new Dictionary();
+    private final Dictionary urls = new Dictionary();
+    private int size;
+    private int evictedCount;
+    private int pinnedCount;
+
+    PostStore() {
+        this(64);
+    }
+
+    PostStore(int expectedPosts) {
+        int capacity = Math.max(1, expectedPosts);
+        ids = new long[capacity];
+        createdAtMillis = new long[capacity];
+        types = new byte[capacity];
+        authorIds = new int[capacity];
+        mediaIds = new int[capacity];
+        textStarts = new int[capacity];
+        textEnds = new int[capacity];
+        pinned = new boolean[capacity];
+        textBytes = new byte[capacity * 32];
+    }
+
+    /** Appends a post; returns its row. */
+    int add(Post post) {
+        ensureCapacity(size + 1);
+        int row = size++;
+        write(row, post);
+        return row;
+    }
+
+    /**
+     * Merges posts, in any order, into a store kept newest first by (createdAt, id), each
+     * at the row a binary search finds for it. Posts whose key is already in the store are
+     * skipped. Returns the final rows of the inserted posts, ascending; rows that were
+     * after an insertion point move down by the number of posts inserted before them.
+     */
+    int[] insert(List<Post> batch) {
+        Post[] sorted = batch.toArray(new Post[0]);
+        long[] millis = new long[sorted.length];
+        Arrays.sort(sorted, FEED_ORDER);
+        int[] positions = new int[sorted.length]; // Insertion point among the existing rows
+        int count = 0;
+        for (Post post : sorted) {
+            long postMillis = FeedCursor.toMillis(post.getCreatedAt());
+            int position = firstRowAfter(postMillis, post.getId());
+            boolean present = position > 0 && createdAtMillis[position - 1] == postMillis && ids[position - 1] == post.getId();
+            boolean repeated = count > 0 && millis[count - 1] == postMillis && sorted[count - 1].getId() == post.getId();
+            if (!present && !repeated) {
+                sorted[count] = post;
+                millis[count] = postMillis;
+                positions[count++] = position;
+            }
+        }
+
+        ensureCapacity(size + count);
+        int[] rows = new int[count];
+        int end = size; // Existing rows [positions[i], end) move down by i + 1
+        for (int i = count - 1; i >= 0; i--) {
+            int from = positions[i];
+            shiftRows(from, end - from, i + 1);
+            rows[i] = from + i;
+            end = from;
+        }
+        size += count;
+        for (int i = 0; i < count; i++) {
+            write(rows[i], sorted[i]);
+        }
+        return rows;
+    }
+
+    void addAll(List<Post> posts) {
+        ensureCapacity(size + posts.size());
+        for (Post post : posts) {
+            add(post);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Rows whose content is currently held, evicted rows not counted. */
+    int retainedSize() {
+        return size - evictedCount;
+    }
+
+    /** Rows that {@link #evict} may drop: retained and not pinned. */
+    int evictableSize() {
+        return size - evictedCount - pinnedCount;
+    }
+
+    /** Keeps the row's content for good; {@link #evict} passes over it. */
+    void pin(int row) {
+        checkRetained(row);
+        if (!pinned[row]) {
+            pinned[row] = true;
+            pinnedCount++;
+        }
+    }
+
+    boolean isEvicted(int row) {
+        checkRow(row);
+        return textStarts[row] == EVICTED;
+    }
+
+    /**
+     * Drops the text of the given rows, pinned rows excepted, in one pass, then compacts the text arena once; the
+     * other columns are fixed-size and authors and URLs stay in their dictionaries. Rows keep
+     * their key and type, but {@link #get} and {@link #getContentText} refuse them until they
+     * are restored. Returns the number of rows newly evicted.
+     */
+    int evict(BitSet rows) {
+        int count = 0;
+        for (int row = rows.nextSetBit(0); row >= 0 && row < size; row = rows.nextSetBit(row + 1)) {
+            if (textStarts[row] != EVICTED && !pinned[row]) {
+                textStarts[row] = EVICTED;
+                textEnds[row] = EVICTED;
+                count++;
+            }
+        }
+        if (count > 0) {
+            evictedCount += count;
+            compactTexts();
+        }
+        return count;
+    }
+
+    /**
+     * Puts back the content of an evicted row. Returns false, changing nothing, if the row is
+     * not evicted or has a different key than the post.
+     */
+    boolean restore(int row, Post post) {
+        checkRow(row);
+        if (textStarts[row] != EVICTED || ids[row] != post.getId()
+                || createdAtMillis[row] != FeedCursor.toMillis(post.getCreatedAt())) {
+            return false;
+        }
+        write(row, post);
+        evictedCount--;
+        return true;
+    }
+
+    /** Row holding the post with this key, evicted or not; -1 if there is none. */
+    int rowOf(long millis, long id) {
+        int row = firstRowAfter(millis, id) - 1;
+        return row >= 0 && createdAtMillis[row] == millis && ids[row] == id ? row : -1;
+    }
+
+    /** Drops every row; dictionaries are kept since the same authors and URLs tend to come back. */
+    void clear() {
+        size = 0;
+        evictedCount = 0;
+        pinnedCount = 0;
+        textLength = 0;
+    }
+
+    /** A new view of the row. Views are not cached, so compare them by row rather than identity. */
+    Post get(int row) {
+        checkRetained(row);
+        String author = authors.get(authorIds[row]);
+        LocalDateTime createdAt = FeedCursor.toDateTime(createdAtMillis[row]);
+        long id = ids[row];
+        String text = getContentText(row);
+        switch (getType(row)) {
+            case PHOTO:
+                return Post.photo(id, author, createdAt, urls.get(mediaIds[row]), text);
+            case VIDEO:
+                return Post.video(id, author, createdAt, urls.get(mediaIds[row]), text);
+            default:
+                return Post.text(id, author, createdAt, text);
+        }
+    }
+
+    /** Column read; no view is built. */
+    PostType getType(int row) {
+        checkRow(row);
+        return TYPES[types[row]];
+    }
+
+    /** Column read; no view is built. Decodes a new string each call. */
+    String getContentText(int row) {
+        checkRetained(row);
+        if (textStarts[row] == NO_TEXT) {
+            return null;
+        }
+        return new String(textBytes, textStarts[row], textEnds[row] - textStarts[row], StandardCharsets.UTF_8);
+    }
+
+    /** Column read; no view is built. */
+    long getCreatedAtMillis(int row) {
+        checkRow(row);
+        return createdAtMillis[row];
+    }
+
+    /** Column read; no view is built. */
+    long getId(int row) {
+        checkRow(row);
+        return ids[row];
+    }
+
+    /**
+     * Read-only list over rows [from, to), building each Post when it is read. The slice
+     * stays valid while rows are only appended; {@link #insert} and {@link #clear()}
+     * invalidate it.
+     */
+    List<Post> slice(int from, int to) {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("Slice [" + from + ", " + to + ") of " + size);
+        }
+        return new Slice(from, to);
+    }
+
+    private void write(int row, Post post) {
+        ids[row] = post.getId();
+        pinned[row] = false;
+        createdAtMillis[row] = FeedCursor.toMillis(post.getCreatedAt());
+        types[row] = (byte) post.getType().ordinal();
+        authorIds[row] = authors.intern(post.getAuthor());
+        mediaIds[row] = post.getMediaUrl() == null ? NO_MEDIA : urls.intern(post.getMediaUrl());
+        String text = post.getContentText();
+        if (text == null) {
+            textStarts[row] = NO_TEXT;
+            textEnds[row] = NO_TEXT;
+            return;
+        }
+        byte[] encoded = text.getBytes(StandardCharsets.UTF_8);
+        if (textLength + encoded.length > textBytes.length) {
+            textBytes = Arrays.copyOf(textBytes, Math.max(textBytes.length * 2, textLength + encoded.length));
+        }
+        System.arraycopy(encoded, 0, textBytes, textLength, encoded.length);
+        textStarts[row] = textLength;
+        textLength += encoded.length;
+        textEnds[row] = textLength;
+    }
+
+    /** Moves rows [from, from + length) down by {@code distance} in every column. */
+    private void shiftRows(int from, int length, int distance) {
+        if (length == 0) {
+            return;
+        }
+        int to = from + distance;
+        System.arraycopy(ids, from, ids, to, length);
+        System.arraycopy(createdAtMillis, from, createdAtMillis, to, length);
+        System.arraycopy(types, from, types, to, length);
+        System.arraycopy(authorIds, from, authorIds, to, length);
+        System.arraycopy(mediaIds, from, mediaIds, to, length);
+        System.arraycopy(textStarts, from, textStarts, to, length);
+        System.arraycopy(textEnds, from, textEnds, to, length);
+        System.arraycopy(pinned, from, pinned, to, length);
+    }
+
+    /** Number of rows that come before or at the key in feed order. */
+    private int firstRowAfter(long millis, long id) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (createdAtMillis[mid] > millis || (createdAtMillis[mid] == millis && ids[mid] >= id)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= createdAtMillis.length) {
+            return;
+        }
+        int capacity = Math.max(needed, createdAtMillis.length + (createdAtMillis.length >> 1));
+        ids = Arrays.copyOf(ids, capacity);
+        createdAtMillis = Arrays.copyOf(createdAtMillis, capacity);
+        types = Arrays.copyOf(types, capacity);
+        authorIds = Arrays.copyOf(authorIds, capacity);
+        mediaIds = Arrays.copyOf(mediaIds, capacity);
+        textStarts = Arrays.copyOf(textStarts, capacity);
+        textEnds = Arrays.copyOf(textEnds, capacity);
+        pinned = Arrays.copyOf(pinned, capacity);
+    }
+
+    /** Copies the texts of retained rows to the front of a new arena, in row order. */
+    private void compactTexts() {
+        int length = 0;
+        for (int row = 0; row < size; row++) {
+            if (textStarts[row] >= 0) {
+                length += textEnds[row] - textStarts[row];
+            }
+        }
+        byte[] compacted = new byte[Math.max(64, length + (length >> 2))];
+        int end = 0;
+        for (int row = 0; row < size; row++) {
+            int start = textStarts[row];
+            if (start >= 0) {
+                int textSize = textEnds[row] - start;
+                System.arraycopy(textBytes, start, compacted, end, textSize);
+                textStarts[row] = end;
+                end += textSize;
+                textEnds[row] = end;
+            }
+        }
+        textBytes = compacted;
+        textLength = end;
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        }
+    }
+
+    private void checkRetained(int row) {
+        checkRow(row);
+        if (textStarts[row] == EVICTED) {
+            throw new IllegalStateException("Row " + row + " is evicted");
+        }
+    }
+
+    private final class Slice extends AbstractList<Post> implements RandomAccess {
+        private final int from;
+        private final int to;
+
+        Slice(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Post get(int index) {
+            if (index < 0 || index >= to - from) {
+                throw new IndexOutOfBoundsException("Index " + index + " of " + (to - from));
+            }
+            return PostStore.this.get(from + index);
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+
+    /** Each distinct string is kept once and referred to by a dense int id. */
+    private static final class Dictionary {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int intern(String value) {
+            Integer id = ids.get(value);
+            if (id == null) {
+                id = values.size();
+                ids.put(value, id);
+                values.add(value);
+            }
+            return id;
+        }
+
+        String get(int id) {
+            return values.get(id);
+        }
+    }
+
+    // Heap comparison against holding the same posts as Post objects
+    /**
+     * Heap taken by the same posts as List&lt;Post&gt; and as a PostStore, for two author
+     * distributions: the generated feed's, where every post has its own author, and one
+     * where 500 authors post in turn, as in a real feed. Interning only pays off in the
+     * second; the first shows the saving from the columns alone.
+     */
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 300_000;
+        List<Post> generated = new GeneratedPostRepository(count).fetchPage(0, count);
+        report("distinct authors (generated feed)", generated, 0);
+        report("500 repeating authors", generated, 500);
+    }
+
+    /** Measures both layouts for the posts; authors are reassigned round-robin when {@code authors > 0}. */
+    private static void report(String label, List<Post> source, int authors) {
+        List<Post> posts = new ArrayList<>(source.size());
+        for (int i = 0; i < source.size(); i++) {
+            posts.add(copyOf(source.get(i), authors > 0 ? "user" + (i % authors) : null));
+        }
+
+        long before = usedHeap();
+        PostStore store = new PostStore(posts.size());
+        for (Post post : posts) {
+            // The store keeps only the strings it interns; those must be its own to be counted
+            store.add(copyOf(post, null));
+        }
+        long storeBytes = usedHeap() - before;
+
+        before = usedHeap();
+        List<Post> objects = new ArrayList<>(posts.size());
+        for (Post post : posts) {
+            // Fresh strings per post, as the repository used to build them
+            objects.add(copyOf(post, null));
+        }
+        long objectBytes = usedHeap() - before;
+
+        System.out.printf("%d posts, %s: List<Post> %.1f MB, PostStore %.1f MB, %.1fx smaller%n",
+                posts.size(), label, objectBytes / 1e6, storeBytes / 1e6, (double) objectBytes / Math.max(1, storeBytes));
+        Reference.reachabilityFence(store);
+        Reference.reachabilityFence(objects);
+        Reference.reachabilityFence(posts);
+    }
+
+    /** Deep copy: new String(String) would share the characters, which then go uncounted. */
+    private static Post copyOf(Post post, String authorOverride) {
+        String author = fresh(authorOverride != null ? authorOverride : post.getAuthor());
+        String text = fresh(post.getContentText());
+        LocalDateTime createdAt = LocalDateTime.of(post.getCreatedAt().toLocalDate(), post.getCreatedAt().toLocalTime());
+        switch (post.getType()) {
+            case PHOTO:
+                return Post.photo(post.getId(), author, createdAt, fresh(post.getMediaUrl()), text);
+            case VIDEO:
+                return Post.video(post.getId(), author, createdAt, fresh(post.getMediaUrl()), text);
+            default:
+                return Post.text(post.getId(), author, createdAt, text);
+        }
+    }
+
+    private static String fresh(String s) {
+        return s == null ? null : new String(s.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
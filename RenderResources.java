@@ -0,0 +1,151 @@
+import javax.swing.BorderFactory;
+import javax.swing.JComponent;
+import javax.swing.JPanel;
+import javax.swing.UIManager;
+import javax.swing.border.Border;
+import javax.swing.border.EmptyBorder;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Rendering resources shared by every {@link FeedCell}: fonts, colors and borders are
+ * created once, bind-time strings are cached, and the video placeholder is drawn once per
+ * size and then blitted.
+ *
+ * Fonts derive from the look and feel's defaults when this class is first used, so set the
+ * look and feel before building the first cell. The caches are not thread-safe; use them
+ * on the EDT, where cells are built and bound.
+ */
+final class RenderResources {
+    static final Color CARD_BG = Color.WHITE;
+    static final Color TEXT_COLOR = baseColor("Label.foreground");
+    static final Color BORDER_COLOR = new Color(230, 230, 230);
+    static final Color META_COLOR = new Color(120, 120, 120);
+    static final Color PLACEHOLDER_BG = new Color(245, 245, 245);
+    static final Color PLAY_BUTTON_BG = new Color(66, 133, 244);
+    private static final Color VIDEO_BG = new Color(30, 30, 30);
+    private static final Color PLAY_ICON = new Color(255, 255, 255, 210);
+
+    static final Font AUTHOR_FONT = baseFont("Label.font").deriveFont(Font.BOLD, 14f);
+    static final Font META_FONT = baseFont("Label.font");
+    static final Font BODY_FONT = baseFont("TextArea.font").deriveFont(16f);
+    static final Font CAPTION_FONT = baseFont("TextArea.font").deriveFont(14f);
+
+    static final Border CARD_BORDER = BorderFactory.createCompoundBorder(
+            BorderFactory.createLineBorder(BORDER_COLOR), new EmptyBorder(12, 12, 12, 12));
+    static final Border CAPTION_BORDER = new EmptyBorder(8, 0, 0, 0);
+    static final Border PLACEHOLDER_BORDER = BorderFactory.createLineBorder(new Color(235, 235, 235));
+
+    /** Wrapped body and caption lines, shared by painting and by row heights computed ahead of cells. */
+    static final TextMeasureCache TEXT_MEASURES = new TextMeasureCache(8192);
+
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private static final int STRING_CACHE_SIZE = 2048;
+    private static final int THUMBNAIL_CACHE_SIZE = 4;
+
+    // Timestamps show minutes, so posts in the same minute share one string
+    private static final Map<Long, String> timestamps = lru(STRING_CACHE_SIZE);
+    private static final Map<String, String> authors = lru(STRING_CACHE_SIZE);
+    private static final Map<Long, BufferedImage> videoThumbnails = lru(THUMBNAIL_CACHE_SIZE);
+    private static final JComponent METRICS_SOURCE = new JPanel();
+
+    private RenderResources() {
+    }
+
+    /** Metrics of the font as an unpainted component measures text, for layout without a cell. */
+    static FontMetrics fontMetrics(Font font) {
+        return METRICS_SOURCE.getFontMetrics(font);
+    }
+
+    /** The post time as shown in a card header, e.g. 2024-05-01 13:37. */
+    static String formatTimestamp(LocalDateTime createdAt) {
+        long minute = Math.floorDiv(createdAt.toEpochSecond(ZoneOffset.UTC), 60);
+        String text = timestamps.get(minute);
+        if (text == null) {
+            text = createdAt.format(TIMESTAMP);
+            timestamps.put(minute, text);
+        }
+        return text;
+    }
+
+    /** The author name with its first code point in title case. */
+    static String displayAuthor(String author) {
+        if (author == null || author.isEmpty()) {
+            return author;
+        }
+        String text = authors.get(author);
+        if (text == null) {
+            text = capitalizeFirst(author);
+            authors.put(author, text);
+        }
+        return text;
+    }
+
+    /** Paints the video placeholder, a dark rounded card with a play triangle, from a cached image. */
+    static void paintVideoThumbnail(Graphics g, int width, int height) {
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        long key = (long) width << 32 | height;
+        BufferedImage image = videoThumbnails.get(key);
+        if (image == null) {
+            image = renderVideoThumbnail(width, height);
+            videoThumbnails.put(key, image);
+        }
+        g.drawImage(image, 0, 0, null);
+    }
+
+    private static BufferedImage renderVideoThumbnail(int width, int height) {
+        // Compatible with the screen, so Java2D can keep an accelerated copy for blitting
+        BufferedImage image = Thumbnailer.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+        Graphics2D g2 = image.createGraphics();
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2.setColor(VIDEO_BG);
+        g2.fillRoundRect(0, 0, width, height, 16, 16);
+
+        int size = Math.min(width, height) / 4;
+        int[] xPoints = {width / 2 - size / 2, width / 2 - size / 2, width / 2 + size};
+        int[] yPoints = {height / 2 - size, height / 2 + size, height / 2};
+        g2.setColor(PLAY_ICON);
+        g2.fillPolygon(xPoints, yPoints, 3);
+        g2.dispose();
+        return image;
+    }
+
+    private static String capitalizeFirst(String input) {
+        int firstCodePoint = input.codePointAt(0);
+        int upperFirst = Character.toTitleCase(firstCodePoint);
+        String tail = input.substring(Character.charCount(firstCodePoint));
+        return new StringBuilder().appendCodePoint(upperFirst).append(tail).toString();
+    }
+
+    private static Color baseColor(String key) {
+        Color color = UIManager.getColor(key);
+        return color != null ? color : Color.BLACK;
+    }
+
+    private static Font baseFont(String key) {
+        Font font = UIManager.getFont(key);
+        return font != null ? font : new Font(Font.DIALOG, Font.PLAIN, 12);
+    }
+
+    private static <K, V> Map<K, V> lru(int maxEntries) {
+        return new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+}
@@ -0,0 +1,130 @@
+import java.util.Arrays;
+
+/**
+ * Row heights of a variable-height list, kept in a Fenwick tree so that the
+ * y-offset of a row and the row at a given y-offset are both O(log n).
+ */
+class RowHeights {
+    private int[] heights = new int[64];
+    private long[] tree = new long[65]; // 1-based Fenwick tree over heights
+    private int size = 0;
+
+    public int size() {
+        return size;
+    }
+
+    public int get(int row) {
+        checkRow(row);
+        return heights[row];
+    }
+
+    /** Appends a row at the end. */
+    public void add(int height) {
+        if (size == heights.length) {
+            heights = Arrays.copyOf(heights, size * 2);
+            tree = Arrays.copyOf(tree, size * 2 + 1);
+        }
+        heights[size] = height;
+        int node = size + 1;
+        // A new Fenwick node covers (node - lowbit(node), node]
+        tree[node] = height + prefixSum(node - 1) - prefixSum(node - Integer.lowestOneBit(node));
+        size++;
+    }
+
+    /**
+     * Inserts rows at the given final positions, ascending, with the given heights; the
+     * existing rows keep their order around them. Rebuilds the tree in O(n), once per batch.
+     */
+    public void insert(int[] rows, int[] newHeights) {
+        int count = rows.length;
+        if (count == 0) {
+            return;
+        }
+        int newSize = size + count;
+        int[] merged = new int[Math.max(newSize, heights.length)];
+        int from = 0;
+        for (int i = 0, to = 0; i < count; i++) {
+            int run = rows[i] - to; // Existing rows before this insertion
+            System.arraycopy(heights, from, merged, to, run);
+            from += run;
+            to = rows[i];
+            merged[to++] = newHeights[i];
+            if (i == count - 1) {
+                System.arraycopy(heights, from, merged, to, size - from);
+            }
+        }
+        heights = merged;
+        size = newSize;
+        tree = new long[heights.length + 1];
+        for (int node = 1; node <= size; node++) {
+            tree[node] += heights[node - 1];
+            int parent = node + Integer.lowestOneBit(node);
+            if (parent <= size) {
+                tree[parent] += tree[node];
+            }
+        }
+    }
+
+    public void set(int row, int height) {
+        checkRow(row);
+        int delta = height - heights[row];
+        if (delta == 0) {
+            return;
+        }
+        heights[row] = height;
+        for (int node = row + 1; node <= size; node += Integer.lowestOneBit(node)) {
+            tree[node] += delta;
+        }
+    }
+
+    /** Sum of the heights of rows [0, row). */
+    public long offsetOf(int row) {
+        if (row < 0 || row > size) {
+            throw new IndexOutOfBoundsException("row " + row + " of " + size);
+        }
+        return prefixSum(row);
+    }
+
+    public long total() {
+        return prefixSum(size);
+    }
+
+    /** Row containing the given offset, clamped to [0, size - 1]; -1 when empty. */
+    public int rowAt(long offset) {
+        if (size == 0) {
+            return -1;
+        }
+        if (offset <= 0) {
+            return 0;
+        }
+        int node = 0;
+        long remaining = offset;
+        for (int step = Integer.highestOneBit(size); step > 0; step >>= 1) {
+            int next = node + step;
+            if (next <= size && tree[next] <= remaining) {
+                node = next;
+                remaining -= tree[next];
+            }
+        }
+        return Math.min(node, size - 1);
+    }
+
+    public void clear() {
+        size = 0;
+        Arrays.fill(tree, 0L);
+    }
+
+    private long prefixSum(int count) {
+        long sum = 0;
+        for (int node = count; node > 0; node -= Integer.lowestOneBit(node)) {
+            sum += tree[node];
+        }
+        return sum;
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("row " + row + " of " + size);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Line breaks and heights of wrapped text, keyed by (text, font, width), so the height of a
+ * post is known before any component shows it, and painting reuses the breaks measured.
+ *
+ * Text wraps like a line-wrapping {@code JTextArea} with word wrap: each line ends after
+ * the last whitespace that fits, or mid-word when one word alone is too wide, and
+ * whitespace may hang past the edge. Every {@code '\n'} starts a new line, and empty text
+ * is one empty line. Breaks come from the font's advances, so measuring needs no layout.
+ *
+ * A bounded LRU map. Not thread-safe; use on the EDT. The counters can be read from any thread.
+ */
+final class TextMeasureCache {
+
+    /** Wrapped lines of one text at one width: line i spans [start(i), end(i)) of the text. */
+    static final class Lines {
+        private final int[] starts;
+        private final int[] ends;
+        private final int count;
+        private final int height;
+
+        private Lines(int[] starts, int[] ends, int count, int lineHeight) {
+            this.starts = starts;
+            this.ends = ends;
+            this.count = count;
+            this.height = count * lineHeight;
+        }
+
+        int count() {
+            return count;
+        }
+
+        int start(int line) {
+            return starts[line];
+        }
+
+        int end(int line) {
+            return ends[line];
+        }
+
+        /** Line count times the font's line height, as a text area without insets reports it. */
+        int height() {
+            return height;
+        }
+    }
+
+    private final Map<Key, Lines> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private volatile int size;
+
+    TextMeasureCache(int maxEntries) {
+        entries = new LinkedHashMap<Key, Lines>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Lines> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /** The text's lines at the given width, measured and kept if not cached yet. */
+    Lines lines(String text, FontMetrics metrics, int width) {
+        Key key = new Key(text, metrics.getFont(), width);
+        Lines lines = entries.get(key);
+        if (lines != null) {
+            hits.increment();
+            return lines;
+        }
+        misses.increment();
+        lines = measure(text, metrics, width);
+        entries.put(key, lines);
+        size = entries.size();
+        return lines;
+    }
+
+    /**
+     * Height of the text at the given width. A miss is measured without being kept, so
+     * sweeping every row of a long feed does not evict the lines of the rows on screen.
+     */
+    int height(String text, FontMetrics metrics, int width) {
+        Lines lines = entries.get(new Key(text, metrics.getFont(), width));
+        if (lines != null) {
+            hits.increment();
+            return lines.height();
+        }
+        misses.increment();
+        return countLines(text, metrics, width) * metrics.getHeight();
+    }
+
+    int size() {
+        return size;
+    }
+
+    long getHitCount() {
+        return hits.sum();
+    }
+
+    long getMissCount() {
+        return misses.sum();
+    }
+
+    void clear() {
+        entries.clear();
+        size = 0;
+    }
+
+    /** Wraps the text at the given width; nothing is cached. */
+    static Lines measure(String text, FontMetrics metrics, int width) {
+        int[] starts = new int[4];
+        int[] ends = new int[4];
+        int count = 0;
+        int pos = 0;
+        while (true) {
+            int paragraphEnd = text.indexOf('\n', pos);
+            if (paragraphEnd < 0) {
+                paragraphEnd = text.length();
+            }
+            do {
+                int end = breakLine(text, pos, paragraphEnd, metrics, width);
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                    ends = Arrays.copyOf(ends, count * 2);
+                }
+                starts[count] = pos;
+                ends[count] = end;
+                count++;
+                pos = end;
+            } while (pos < paragraphEnd);
+            if (paragraphEnd == text.length()) {
+                return new Lines(starts, ends, count, metrics.getHeight());
+            }
+            pos = paragraphEnd + 1;
+        }
+    }
+
+    private static int countLines(String text, FontMetrics metrics, int width) {
+        int count = 0;
+        int pos = 0;
+        while (true) {
+            int paragraphEnd = text.indexOf('\n', pos);
+            if (paragraphEnd < 0) {
+                paragraphEnd = text.length();
+            }
+            do {
+                pos = breakLine(text, pos, paragraphEnd, metrics, width);
+                count++;
+            } while (pos < paragraphEnd);
+            if (paragraphEnd == text.length()) {
+                return count;
+            }
+            pos = paragraphEnd + 1;
+        }
+    }
+
+    /** End of the line starting at {@code start}: after its last whitespace, or where it overflows. */
+    private static int breakLine(String text, int start, int paragraphEnd, FontMetrics metrics, int maxWidth) {
+        int lineWidth = 0;
+        int afterSpace = -1;
+        int i = start;
+        while (i < paragraphEnd) {
+            int codePoint = text.codePointAt(i);
+            int advance = metrics.charWidth(codePoint);
+            boolean space = Character.isWhitespace(codePoint);
+            if (!space && lineWidth + advance > maxWidth && i > start) {
+                return afterSpace > 0 ? afterSpace : i;
+            }
+            lineWidth += advance;
+            i += Character.charCount(codePoint);
+            if (space) {
+                afterSpace = i;
+            }
+        }
+        return paragraphEnd;
+    }
+
+    private static final class Key {
+        private final String text;
+        private final Font font;
+        private final int width;
+
+        Key(String text, Font font, int width) {
+            this.text = text;
+            this.font = font;
+            this.width = width;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return width == other.width && text.equals(other.text) && font.equals(other.font);
+        }
+
+        @Override
+        public int hashCode() {
+            return (text.hashCode() * 31 + font.hashCode()) * 31 + width;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.swing.ImageIcon;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Image;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * Thumbnail pipeline for feed images, meant to run on loader threads only.
+ *
+ * The decoder is asked to subsample rows and columns so the decoded raster is already
+ * close to the target width, then the rest is done by halving steps of bilinear
+ * Graphics2D scaling into an image compatible with the screen. This replaces
+ * {@code Image.getScaledInstance(SCALE_SMOOTH)}, which is slow and yields a lazily
+ * rendered ToolkitImage.
+ */
+final class Thumbnailer {
+
+    private Thumbnailer() {
+    }
+
+    /** Decodes an encoded image to at most {@code targetWidth} pixels wide; null if the format is unknown. */
+    static BufferedImage decodeThumbnail(InputStream in, int targetWidth) throws IOException {
+        Decoded decoded = readSubsampled(in, targetWidth);
+        if (decoded == null) {
+            return null;
+        }
+        long start = System.nanoTime();
+        BufferedImage scaled = scaleToWidth(decoded.image, targetWidth);
+        FeedMetrics.record(FeedMetrics.Stage.SCALE, start);
+        return scaled;
+    }
+
+    /**
+     * Quick low-resolution pass for a placeholder: decodes with coarse subsampling to about
+     * {@code previewWidth} pixels, then stretches that to the size {@link #decodeThumbnail}
+     * will produce for {@code displayWidth}: never wider than the source, since thumbnails
+     * are not upscaled. The placeholder thus takes the thumbnail's place without a layout
+     * change. Returns null if the format is unknown or the image is too small for a
+     * preview to save anything.
+     */
+    static BufferedImage decodePreview(InputStream in, int previewWidth, int displayWidth) throws IOException {
+        Decoded decoded = readSubsampled(in, previewWidth);
+        if (decoded == null) {
+            return null;
+        }
+        // The thumbnail's size: the source subsampled for displayWidth, then narrowed to it if wider
+        int step = subsamplingStep(decoded.sourceWidth, displayWidth);
+        int width = (decoded.sourceWidth + step - 1) / step;
+        int height = (decoded.sourceHeight + step - 1) / step;
+        if (width > displayWidth) {
+            height = Math.max(1, (int) Math.round(height * (double) displayWidth / width));
+            width = displayWidth;
+        }
+        if (decoded.image.getWidth() * 2 > width) {
+            return null;
+        }
+        BufferedImage stretched = createCompatibleImage(width, height, decoded.image.getTransparency());
+        Graphics2D g = stretched.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(decoded.image, 0, 0, width, height, null);
+        g.dispose();
+        return stretched;
+    }
+
+    /** A decoded raster and the size of the image it was subsampled from. */
+    private static final class Decoded {
+        private final BufferedImage image;
+        private final int sourceWidth;
+        private final int sourceHeight;
+
+        Decoded(BufferedImage image, int sourceWidth, int sourceHeight) {
+            this.image = image;
+            this.sourceWidth = sourceWidth;
+            this.sourceHeight = sourceHeight;
+        }
+    }
+
+    private static int subsamplingStep(int sourceWidth, int targetWidth) {
+        return Math.max(1, sourceWidth / Math.max(1, targetWidth));
+    }
+
+    /** Decodes with the largest subsampling step that still leaves at least {@code targetWidth} columns. */
+    private static Decoded readSubsampled(InputStream in, int targetWidth) throws IOException {
+        long start = System.nanoTime();
+        try (ImageInputStream stream = ImageIO.createImageInputStream(in)) {
+            if (stream == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(stream, true, true);
+                int sourceWidth = reader.getWidth(0);
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = subsamplingStep(sourceWidth, targetWidth);
+                param.setSourceSubsampling(step, step, 0, 0);
+                return new Decoded(reader.read(0, param), sourceWidth, reader.getHeight(0));
+            } finally {
+                reader.dispose();
+                FeedMetrics.record(FeedMetrics.Stage.DECODE, start);
+            }
+        }
+    }
+
+    /**
+     * Downscales to {@code targetWidth} keeping the aspect ratio, halving at most per step so
+     * bilinear filtering never skips source pixels. Narrower images are only converted.
+     */
+    static BufferedImage scaleToWidth(BufferedImage source, int targetWidth) {
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        if (width <= targetWidth) {
+            return toCompatible(source);
+        }
+        int targetHeight = Math.max(1, (int) Math.round(height * (double) targetWidth / width));
+        do {
+            int nextWidth = Math.max(targetWidth, width / 2);
+            int nextHeight = nextWidth == targetWidth ? targetHeight : Math.max(targetHeight, height / 2);
+            BufferedImage next = createCompatibleImage(nextWidth, nextHeight, source.getTransparency());
+            Graphics2D g = next.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(current, 0, 0, nextWidth, nextHeight, null);
+            g.dispose();
+            current = next;
+            width = nextWidth;
+            height = nextHeight;
+        } while (width > targetWidth);
+        return current;
+    }
+
+    private static BufferedImage toCompatible(BufferedImage image) {
+        BufferedImage compatible = createCompatibleImage(image.getWidth(), image.getHeight(), image.getTransparency());
+        if (compatible.getType() == image.getType() && image.getType() != BufferedImage.TYPE_CUSTOM) {
+            return image;
+        }
+        Graphics2D g = compatible.createGraphics();
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+        return compatible;
+    }
+
+    /** An image in the screen's native pixel layout, so blitting it needs no conversion. */
+    static BufferedImage createCompatibleImage(int width, int height, int transparency) {
+        if (!GraphicsEnvironment.isHeadless()) {
+            GraphicsConfiguration config = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                    .getDefaultScreenDevice().getDefaultConfiguration();
+            return config.createCompatibleImage(width, height, transparency);
+        }
+        return new BufferedImage(width, height, transparency == Transparency.OPAQUE
+                ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+    }
+
+    // Throughput comparison against the previous ImageIO.read + getScaledInstance path
+    public static void main(String[] args) throws IOException {
+        int sourceWidth = args.length > 0 ? Integer.parseInt(args[0]) : 1600;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 40;
+        byte[] jpeg = syntheticJpeg(sourceWidth, sourceWidth * 5 / 8);
+
+        for (int round = 0; round < 2; round++) { // first round is warm-up
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                BufferedImage img = ImageIO.read(new ByteArrayInputStream(jpeg));
+                int targetHeight = (int) Math.round(img.getHeight() * 600.0 / img.getWidth());
+                Image scaled = img.getScaledInstance(600, targetHeight, Image.SCALE_SMOOTH);
+                new ImageIcon(scaled); // forces the lazy scaling to complete
+            }
+            long legacyNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                decodeThumbnail(new ByteArrayInputStream(jpeg), 600);
+            }
+            long pipelineNanos = System.nanoTime() - start;
+
+            if (round > 0) {
+                System.out.printf("source %dpx: getScaledInstance %.1f img/s, subsample+bilinear %.1f img/s (%.1fx)%n",
+                        sourceWidth,
+                        iterations / (legacyNanos / 1e9),
+                        iterations / (pipelineNanos / 1e9),
+                        (double) legacyNanos / pipelineNanos);
+            }
+        }
+    }
+
+    static byte[] syntheticJpeg(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, ((x * 255 / width) << 16) | ((y * 255 / height) << 8) | ((x ^ y) & 0xFF));
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        return out.toByteArray();
+    }
+}